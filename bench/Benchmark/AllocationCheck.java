@@ -0,0 +1,256 @@
+package Benchmark;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+import FeedForwardNetwork.FeedForwardNetwork;
+import FeedForwardNetwork.Gradient;
+import FeedForwardNetwork.NetworkContext;
+import FeedForwardNetwork.ParallelTrainer;
+import FeedForwardNetwork.QuantizedNetwork;
+import FeedForwardNetwork.TrainingSet;
+import GoalKeeperCheatSheet.GoalKeeperCheatSheetNeuronalNetwork;
+import GoalKeeperCheatSheet.PenaltyShot;
+import GoalKeeperCheatSheet.PenaltyShotImporter;
+import GoalKeeperCheatSheet.TrainingSchedule;
+
+/**
+ * Checks that the hot paths of training and prediction do not allocate in
+ * steady state. Every path is measured like by NetworkBenchmark; a path
+ * allocating at least one byte per run fails the check and the program exits
+ * with status 1, so a build script can stop on it. On JVMs without an
+ * allocation counter nothing can be checked and the program exits with
+ * status 2.
+ * 
+ * The teaching epochs are measured per record, as every teaching run returns
+ * a new BenchmarkTeaching. Only the allocations of the teaching thread are
+ * counted; the threads of a ParallelTrainer run the paths measured by
+ * apply(context)+accumulateGradient() and apply()+backpropagate().
+ *
+ * Compile it like NetworkBenchmark and run it from the project directory:
+ *
+ * <pre>
+ * java -cp bench-bin Benchmark.AllocationCheck
+ * </pre>
+ */
+public class AllocationCheck {
+	private static final String[] CSV_FILES = { "gruppe_ca6_t1.csv",
+			"gruppe_ca6_t2.csv" };
+
+	private static final int HIDDEN_SIZE = 16;
+	private static final int WARM_UP_OPS = 20000;
+	private static final int MEASURED_OPS = 100000;
+
+	// The teaching epochs run on the records repeated this often, so that the
+	// result of a run is spread over many records
+	private static final int EPOCH_REPEATS = 10;
+	private static final int WARM_UP_EPOCHS = 50;
+	private static final int MEASURED_EPOCHS = 100;
+	private static final int MAX_ITERATIONS_PER_RECORD = 10;
+	private static final int MINI_BATCH_SIZE = 16;
+	private static final int NUM_OF_THREADS = 2;
+
+	// Allocations are at least an object header, everything below is noise
+	// of the counter
+	private static final double MAX_BYTES_PER_OP = 1.0;
+
+	private static volatile double sink;
+
+	public static void main(String[] args) throws Exception {
+		final TrainingSet records = GoalKeeperCheatSheetNeuronalNetwork
+				.createTrainingSet();
+		final List<PenaltyShot> shots = new ArrayList<PenaltyShot>();
+		for (String csvFile : CSV_FILES) {
+			PenaltyShotImporter.processFile(new File(csvFile), records);
+			shots.addAll(PenaltyShotImporter.processFile(new File(csvFile)));
+		}
+
+		final double[] in = records.getFeatures();
+		final double[] teach = records.getTargets();
+		final int numOfIn = records.getNumOfFeatures();
+		final int numOfOut = records.getNumOfTargets();
+		final int numOfRecords = records.size();
+
+		final FeedForwardNetwork network = newNetwork();
+		final NetworkContext context = network.createContext();
+		final Gradient gradient = network.createGradient();
+		final QuantizedNetwork quantized = new QuantizedNetwork(network);
+		final double[] out = new double[numOfOut];
+		final double[][] batchIn = new double[FeedForwardNetwork.BATCH_BLOCK_SIZE][numOfIn];
+		final double[][] batchOut = new double[batchIn.length][numOfOut];
+		for (int i = 0; i < batchIn.length; i++) {
+			System.arraycopy(in, (i % numOfRecords) * numOfIn, batchIn[i], 0,
+					numOfIn);
+		}
+
+		final GoalKeeperCheatSheetNeuronalNetwork goalKeeper = new GoalKeeperCheatSheetNeuronalNetwork(
+				HIDDEN_SIZE, 0.05, 0.5);
+
+		List<Measurement> measurements = new ArrayList<Measurement>();
+
+		measurements.add(Measurement.measure("apply()", WARM_UP_OPS,
+				MEASURED_OPS, new Measurement.Operation() {
+					private int i;
+
+					public void run() {
+						network.setInputs(in, (i++ % numOfRecords) * numOfIn);
+						network.apply();
+						sink = network.getOutput(0);
+					}
+				}));
+
+		measurements.add(Measurement.measure("apply()+backpropagate()",
+				WARM_UP_OPS, MEASURED_OPS, new Measurement.Operation() {
+					private int i;
+
+					public void run() {
+						int record = i++ % numOfRecords;
+						network.setInputs(in, record * numOfIn);
+						network.apply();
+						network.backpropagate(teach, record * numOfOut);
+					}
+				}));
+
+		measurements.add(Measurement.measure(
+				"apply(context)+accumulateGradient()", WARM_UP_OPS,
+				MEASURED_OPS, new Measurement.Operation() {
+					private int i;
+
+					public void run() {
+						int record = i++ % numOfRecords;
+						context.setInputs(in, record * numOfIn);
+						network.apply(context);
+						network.accumulateGradient(teach, record * numOfOut,
+								context, gradient);
+					}
+				}));
+
+		measurements.add(Measurement.measure("applyBatch()", WARM_UP_OPS
+				/ batchIn.length, MEASURED_OPS / batchIn.length,
+				new Measurement.Operation() {
+					public void run() {
+						network.applyBatch(batchIn, batchOut, context);
+						sink = batchOut[0][0];
+					}
+				}));
+
+		measurements.add(Measurement.measure("QuantizedNetwork.apply()",
+				WARM_UP_OPS, MEASURED_OPS, new Measurement.Operation() {
+					private int i;
+
+					public void run() {
+						quantized.apply(in, (i++ % numOfRecords) * numOfIn,
+								out);
+						sink = out[0];
+					}
+				}));
+
+		measurements.add(Measurement.measure("ask()", WARM_UP_OPS,
+				MEASURED_OPS, new Measurement.Operation() {
+					private int i;
+
+					public void run() {
+						sink = goalKeeper.ask(shots.get(i++ % shots.size()),
+								out).length();
+					}
+				}));
+
+		TrainingSet epochRecords = GoalKeeperCheatSheetNeuronalNetwork
+				.createTrainingSet();
+		for (int i = 0; i < EPOCH_REPEATS; i++) {
+			epochRecords.addAll(records);
+		}
+
+		List<Measurement> epochMeasurements = new ArrayList<Measurement>();
+		epochMeasurements.add(measureEpochs("teach epoch online",
+				epochRecords, 1, 1, null));
+		epochMeasurements.add(measureEpochs("teach epoch mini-batch",
+				epochRecords, MINI_BATCH_SIZE, 1, null));
+		epochMeasurements.add(measureEpochs("teach epoch SYNCHRONOUS",
+				epochRecords, MINI_BATCH_SIZE, NUM_OF_THREADS,
+				ParallelTrainer.Mode.SYNCHRONOUS));
+		epochMeasurements.add(measureEpochs("teach epoch HOGWILD",
+				epochRecords, 1, NUM_OF_THREADS, ParallelTrainer.Mode.HOGWILD));
+
+		boolean failed = false;
+		for (Measurement measurement : measurements) {
+			failed |= check(measurement, 1);
+		}
+		for (Measurement measurement : epochMeasurements) {
+			failed |= check(measurement, epochRecords.size());
+		}
+
+		if (failed) {
+			System.exit(1);
+		}
+	}
+
+	/**
+	 * Measures steady state teaching runs of a single epoch.
+	 * 
+	 * @param records
+	 *            The training records of every epoch.
+	 * @param batchSize
+	 *            The batch size of the network.
+	 * @param numOfThreads
+	 *            The number of teaching threads.
+	 * @param mode
+	 *            The mode of the ParallelTrainer, if numOfThreads > 1.
+	 */
+	private static Measurement measureEpochs(String name,
+			TrainingSet records, int batchSize, int numOfThreads,
+			ParallelTrainer.Mode mode) throws Exception {
+		final GoalKeeperCheatSheetNeuronalNetwork goalKeeper = new GoalKeeperCheatSheetNeuronalNetwork(
+				HIDDEN_SIZE, 0.05, 0.5);
+		goalKeeper.setTrainingSchedule(new TrainingSchedule(1,
+				MAX_ITERATIONS_PER_RECORD, 0, 0, 0));
+		goalKeeper.setBatchSize(batchSize);
+		goalKeeper.setNumOfThreads(numOfThreads, mode);
+		try {
+			goalKeeper.teach(records);
+			return Measurement.measure(name, WARM_UP_EPOCHS, MEASURED_EPOCHS,
+					new Measurement.Operation() {
+						public void run() {
+							sink = goalKeeper.continueTeaching().getAvgError();
+						}
+					});
+		} finally {
+			goalKeeper.setNumOfThreads(1, null);
+		}
+	}
+
+	/**
+	 * Prints a measurement and checks that it does not allocate. The program
+	 * exits with status 2 if the JVM does not count allocations.
+	 * 
+	 * @param recordsPerOp
+	 *            The number of records processed by a run of the operation.
+	 * @return True if the operation allocates.
+	 */
+	private static boolean check(Measurement measurement, int recordsPerOp) {
+		System.out.println(measurement);
+		if (measurement.getBytesPerOp() < 0) {
+			System.out.println("Allocation check not possible, the JVM does "
+					+ "not count allocations.");
+			System.exit(2);
+		}
+		if (measurement.getBytesPerOp() / recordsPerOp >= MAX_BYTES_PER_OP) {
+			System.out.println("FAILED: " + measurement.getName()
+					+ " allocates");
+			return true;
+		}
+		return false;
+	}
+
+	private static FeedForwardNetwork newNetwork() {
+		FeedForwardNetwork network = new FeedForwardNetwork(
+				GoalKeeperCheatSheetNeuronalNetwork.NUM_OF_INPUT_NODES,
+				HIDDEN_SIZE,
+				GoalKeeperCheatSheetNeuronalNetwork.NUM_OF_OUTPUT_NODES);
+		network.init();
+		network.setEpsilon(0.05);
+		network.setLearningRate(0.5);
+		return network;
+	}
+}
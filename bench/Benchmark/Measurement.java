@@ -0,0 +1,126 @@
+package Benchmark;
+
+import java.lang.reflect.Method;
+
+/**
+ * This class measures the average time and the allocated memory of an
+ * operation. Every measurement starts with warm up rounds, which let the JIT
+ * compile the operation, followed by the measured rounds.
+ * 
+ * The allocated memory is read from the per-thread allocation counter of the
+ * HotSpot JVM. On JVMs without this counter (e.g. Dalvik) it is reported as
+ * -1.
+ */
+public class Measurement {
+
+	/**
+	 * An operation to measure. It is run repeatedly on the measuring thread.
+	 */
+	public interface Operation {
+		void run() throws Exception;
+	}
+
+	private static final Object THREAD_BEAN;
+	private static final Method ALLOCATED_BYTES;
+
+	static {
+		Object bean = null;
+		Method allocatedBytes = null;
+		try {
+			bean = Class.forName("java.lang.management.ManagementFactory")
+					.getMethod("getThreadMXBean").invoke(null);
+			allocatedBytes = Class.forName("com.sun.management.ThreadMXBean")
+					.getMethod("getThreadAllocatedBytes", long.class);
+		} catch (Exception e) {
+			bean = null;
+			allocatedBytes = null;
+		}
+		THREAD_BEAN = bean;
+		ALLOCATED_BYTES = allocatedBytes;
+	}
+
+	private final String name;
+	private final double nanosPerOp;
+	private final double bytesPerOp;
+
+	private Measurement(String name, double nanosPerOp, double bytesPerOp) {
+		this.name = name;
+		this.nanosPerOp = nanosPerOp;
+		this.bytesPerOp = bytesPerOp;
+	}
+
+	/**
+	 * Measures an operation.
+	 * 
+	 * @param name
+	 *            The name of the measurement.
+	 * @param warmUpOps
+	 *            The number of runs before the measurement.
+	 * @param measuredOps
+	 *            The number of measured runs. [0<measured runs]
+	 * @param operation
+	 *            The operation to measure.
+	 * @return The average time and allocated memory per run.
+	 * @throws Exception
+	 *             If the operation failed.
+	 */
+	public static Measurement measure(String name, int warmUpOps,
+			int measuredOps, Operation operation) throws Exception {
+		for (int i = 0; i < warmUpOps; i++) {
+			operation.run();
+		}
+
+		long startBytes = allocatedBytes();
+		long start = System.nanoTime();
+		for (int i = 0; i < measuredOps; i++) {
+			operation.run();
+		}
+		long nanos = System.nanoTime() - start;
+		long endBytes = allocatedBytes();
+
+		double bytesPerOp = -1;
+		if ((startBytes >= 0) && (endBytes >= 0)) {
+			bytesPerOp = (double) (endBytes - startBytes) / measuredOps;
+		}
+
+		return new Measurement(name, (double) nanos / measuredOps, bytesPerOp);
+	}
+
+	/**
+	 * Returns the bytes allocated by the current thread so far, or -1 if the
+	 * JVM does not count allocations.
+	 */
+	private static long allocatedBytes() {
+		if (ALLOCATED_BYTES == null) {
+			return -1;
+		}
+		try {
+			return ((Long) ALLOCATED_BYTES.invoke(THREAD_BEAN, Thread
+					.currentThread().getId())).longValue();
+		} catch (Exception e) {
+			return -1;
+		}
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public double getNanosPerOp() {
+		return nanosPerOp;
+	}
+
+	/**
+	 * Returns the allocated bytes per operation, or -1 if the JVM does not
+	 * count allocations.
+	 */
+	public double getBytesPerOp() {
+		return bytesPerOp;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("%-48s %14.1f ns/op %12.1f B/op", name,
+				nanosPerOp, bytesPerOp);
+	}
+}
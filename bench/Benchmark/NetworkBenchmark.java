@@ -0,0 +1,287 @@
+package Benchmark;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.List;
+
+import FeedForwardNetwork.FeedForwardNetwork;
+import FeedForwardNetwork.QuantizedNetwork;
+import FeedForwardNetwork.TrainingSet;
+import GoalKeeperCheatSheet.GoalKeeperCheatSheetNeuronalNetwork;
+import GoalKeeperCheatSheet.PenaltyShot;
+import GoalKeeperCheatSheet.PenaltyShotImporter;
+
+/**
+ * Benchmarks of the network and the importer to catch performance
+ * regressions. Every benchmark is run for each combination of hidden layer
+ * size and data set size. The data sets repeat the records of
+ * gruppe_ca6_t1.csv and gruppe_ca6_t2.csv up to the requested size.
+ * 
+ * The benchmarks are not part of the app. Compile them together with the
+ * classes of src/ that do not depend on Android (i.e. without Starter and
+ * wbs.nn) into bench-bin/ and run them from the project directory:
+ * 
+ * <pre>
+ * java -cp bench-bin Benchmark.NetworkBenchmark [hidden sizes] [data set sizes]
+ * </pre>
+ * 
+ * e.g. "java -cp bench-bin Benchmark.NetworkBenchmark 8,16,64 100,10000".
+ */
+public class NetworkBenchmark {
+	private static final int[] DEFAULT_HIDDEN_SIZES = { 8, 16, 64 };
+	private static final int[] DEFAULT_DATA_SET_SIZES = { 100, 10000 };
+
+	private static final String[] CSV_FILES = { "gruppe_ca6_t1.csv",
+			"gruppe_ca6_t2.csv" };
+
+	private static final int WARM_UP_OPS = 20000;
+	private static final int MEASURED_OPS = 100000;
+
+	// teach() runs up to 5000 epochs, it is only taught the records
+	private static final int TEACH_RECORDS = 100;
+
+	private static volatile double sink;
+
+	public static void main(String[] args) throws Exception {
+		int[] hiddenSizes = args.length > 0 ? parse(args[0])
+				: DEFAULT_HIDDEN_SIZES;
+		int[] dataSetSizes = args.length > 1 ? parse(args[1])
+				: DEFAULT_DATA_SET_SIZES;
+
+		List<PenaltyShot> records = new ArrayList<PenaltyShot>();
+		for (String csvFile : CSV_FILES) {
+			records.addAll(PenaltyShotImporter.processFile(new File(csvFile)));
+		}
+
+		List<String> lines = readCsvLines();
+		for (int dataSetSize : dataSetSizes) {
+			File file = File.createTempFile("penaltyshots", ".csv");
+			file.deleteOnExit();
+			writeCsv(file, lines, dataSetSize);
+
+			System.out.println(benchmarkProcessFile(file, dataSetSize));
+			System.out.println(benchmarkProcessFileToTrainingSet(file,
+					dataSetSize));
+		}
+
+		for (int hiddenSize : hiddenSizes) {
+			for (int dataSetSize : dataSetSizes) {
+				List<PenaltyShot> dataSet = repeat(records, dataSetSize);
+
+				System.out.println(benchmarkApply(dataSet, hiddenSize));
+				System.out.println(benchmarkApplyQuantized(dataSet,
+						hiddenSize));
+				System.out.println(benchmarkBackpropagate(dataSet, hiddenSize));
+				System.out.println(benchmarkAsk(dataSet, hiddenSize));
+			}
+			System.out.println(benchmarkTeach(
+					repeat(records, TEACH_RECORDS), hiddenSize));
+		}
+	}
+
+	private static Measurement benchmarkApply(List<PenaltyShot> dataSet,
+			int hiddenSize) throws Exception {
+		final FeedForwardNetwork network = newNetwork(hiddenSize);
+		final double[][] in = toInput(dataSet);
+
+		return Measurement.measure("apply() hidden=" + hiddenSize
+				+ " records=" + dataSet.size(), WARM_UP_OPS, MEASURED_OPS,
+				new Measurement.Operation() {
+					private int i;
+
+					public void run() {
+						double[] x = in[i++ % in.length];
+						for (int j = 0; j < x.length; j++) {
+							network.setInput(j, x[j]);
+						}
+						network.apply();
+						sink = network.getOutput(0);
+					}
+				});
+	}
+
+	private static Measurement benchmarkApplyQuantized(
+			List<PenaltyShot> dataSet, int hiddenSize) throws Exception {
+		final QuantizedNetwork network = new QuantizedNetwork(
+				newNetwork(hiddenSize));
+		final double[][] in = toInput(dataSet);
+		final double[] out = new double[network.getOutNeurons()];
+
+		return Measurement.measure("QuantizedNetwork.apply() hidden="
+				+ hiddenSize + " records=" + dataSet.size(), WARM_UP_OPS,
+				MEASURED_OPS, new Measurement.Operation() {
+					private int i;
+
+					public void run() {
+						network.apply(in[i++ % in.length], 0, out);
+						sink = out[0];
+					}
+				});
+	}
+
+	private static Measurement benchmarkBackpropagate(
+			List<PenaltyShot> dataSet, int hiddenSize) throws Exception {
+		final FeedForwardNetwork network = newNetwork(hiddenSize);
+		final double[][] in = toInput(dataSet);
+		final double[][] teach = toTeach(dataSet);
+
+		return Measurement.measure("apply()+backpropagate() hidden="
+				+ hiddenSize + " records=" + dataSet.size(), WARM_UP_OPS,
+				MEASURED_OPS, new Measurement.Operation() {
+					private int i;
+
+					public void run() {
+						int record = i++ % in.length;
+						for (int j = 0; j < in[record].length; j++) {
+							network.setInput(j, in[record][j]);
+						}
+						network.apply();
+						network.backpropagate(teach[record]);
+					}
+				});
+	}
+
+	private static Measurement benchmarkAsk(final List<PenaltyShot> dataSet,
+			int hiddenSize) throws Exception {
+		final GoalKeeperCheatSheetNeuronalNetwork network = new GoalKeeperCheatSheetNeuronalNetwork(
+				hiddenSize, 0.05, 0.5);
+
+		return Measurement.measure("ask() hidden=" + hiddenSize + " records="
+				+ dataSet.size(), WARM_UP_OPS, MEASURED_OPS,
+				new Measurement.Operation() {
+					private int i;
+
+					public void run() {
+						sink = network.ask(dataSet.get(i++ % dataSet.size()))
+								.length();
+					}
+				});
+	}
+
+	private static Measurement benchmarkTeach(
+			final List<PenaltyShot> dataSet, final int hiddenSize)
+			throws Exception {
+		return Measurement.measure("teach() hidden=" + hiddenSize
+				+ " records=" + dataSet.size(), 1, 3,
+				new Measurement.Operation() {
+					public void run() {
+						GoalKeeperCheatSheetNeuronalNetwork network = new GoalKeeperCheatSheetNeuronalNetwork(
+								hiddenSize, 0.05, 0.5);
+						sink = network.teach(dataSet).getTotalError();
+					}
+				});
+	}
+
+	private static Measurement benchmarkProcessFile(final File file,
+			int dataSetSize) throws Exception {
+		return Measurement.measure("processFile() records=" + dataSetSize,
+				10, Math.max(10, 1000000 / dataSetSize),
+				new Measurement.Operation() {
+					public void run() throws IOException {
+						sink = PenaltyShotImporter.processFile(file).size();
+					}
+				});
+	}
+
+	private static Measurement benchmarkProcessFileToTrainingSet(
+			final File file, int dataSetSize) throws Exception {
+		final TrainingSet trainingSet = GoalKeeperCheatSheetNeuronalNetwork
+				.createTrainingSet();
+
+		return Measurement.measure("processFile(TrainingSet) records="
+				+ dataSetSize, 10, Math.max(10, 1000000 / dataSetSize),
+				new Measurement.Operation() {
+					public void run() throws IOException {
+						trainingSet.clear();
+						sink = PenaltyShotImporter.processFile(file,
+								trainingSet);
+					}
+				});
+	}
+
+	private static FeedForwardNetwork newNetwork(int hiddenSize) {
+		FeedForwardNetwork network = new FeedForwardNetwork(
+				GoalKeeperCheatSheetNeuronalNetwork.NUM_OF_INPUT_NODES,
+				hiddenSize,
+				GoalKeeperCheatSheetNeuronalNetwork.NUM_OF_OUTPUT_NODES);
+		network.init();
+		network.setEpsilon(0.05);
+		network.setLearningRate(0.5);
+		return network;
+	}
+
+	private static List<PenaltyShot> repeat(List<PenaltyShot> records,
+			int size) {
+		List<PenaltyShot> dataSet = new ArrayList<PenaltyShot>(size);
+		for (int i = 0; i < size; i++) {
+			dataSet.add(records.get(i % records.size()));
+		}
+		return dataSet;
+	}
+
+	private static double[][] toInput(List<PenaltyShot> dataSet) {
+		double[][] in = new double[dataSet.size()][];
+		for (int i = 0; i < in.length; i++) {
+			PenaltyShot shot = dataSet.get(i);
+			in[i] = new double[] { shot.getRunUpLength(),
+					shot.getRunUpDirection(), shot.getDelay(),
+					shot.getFouled(), shot.getPlace(), shot.getOwnFanBlock(),
+					shot.getImportance(), shot.getSpectators() };
+		}
+		return in;
+	}
+
+	private static double[][] toTeach(List<PenaltyShot> dataSet) {
+		double[][] teach = new double[dataSet.size()][];
+		for (int i = 0; i < teach.length; i++) {
+			PenaltyShot shot = dataSet.get(i);
+			teach[i] = new double[] { shot.getTargetX(), shot.getTargetY() };
+		}
+		return teach;
+	}
+
+	/**
+	 * Reads the records of the training data files as csv lines.
+	 */
+	private static List<String> readCsvLines() throws IOException {
+		List<String> lines = new ArrayList<String>();
+		for (String csvFile : CSV_FILES) {
+			BufferedReader reader = new BufferedReader(new FileReader(csvFile));
+			String line = reader.readLine(); // header
+			while ((line = reader.readLine()) != null) {
+				lines.add(line);
+			}
+			reader.close();
+		}
+		return lines;
+	}
+
+	/**
+	 * Writes a csv file with the given number of records, repeating the given
+	 * csv lines.
+	 */
+	private static void writeCsv(File file, List<String> lines, int size)
+			throws IOException {
+		PrintWriter writer = new PrintWriter(new FileWriter(file));
+		writer.println("Anlauflaenge;Richtung;Verzoegerung;gefoult;Ort;"
+				+ "Kurve;Wichtig;Zuschauer;Ziel");
+		for (int i = 0; i < size; i++) {
+			writer.println(lines.get(i % lines.size()));
+		}
+		writer.close();
+	}
+
+	private static int[] parse(String list) {
+		String[] values = list.split(",");
+		int[] result = new int[values.length];
+		for (int i = 0; i < values.length; i++) {
+			result[i] = Integer.parseInt(values[i].trim());
+		}
+		return result;
+	}
+}
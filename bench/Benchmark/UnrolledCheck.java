@@ -0,0 +1,193 @@
+package Benchmark;
+
+import java.io.File;
+
+import FeedForwardNetwork.FeedForwardNetwork;
+import FeedForwardNetwork.TrainingSet;
+import GoalKeeperCheatSheet.GoalKeeperCheatSheetNeuronalNetwork;
+import GoalKeeperCheatSheet.PenaltyShotImporter;
+
+/**
+ * Checks that the unrolled kernels of FeedForwardNetwork compute the same
+ * results as the scalar loops on the training data. For every hidden layer
+ * size a scalar and an unrolled network start from the same weights; the
+ * outputs of apply() must not differ by more than APPLY_TOLERANCE, and after
+ * teaching both networks online by apply() and backpropagate() neither the
+ * outputs nor the weights may differ by more than TRAINING_TOLERANCE. If a
+ * check fails the program exits with status 1.
+ *
+ * Compile it like NetworkBenchmark and run it from the project directory:
+ *
+ * <pre>
+ * java -cp bench-bin Benchmark.UnrolledCheck
+ * </pre>
+ */
+public class UnrolledCheck {
+	private static final String[] CSV_FILES = { "gruppe_ca6_t1.csv",
+			"gruppe_ca6_t2.csv" };
+
+	// the sizes leave every remainder of the unrolled loops
+	private static final int[] HIDDEN_SIZES = { 8, 16, 64 };
+	private static final int EPOCHS = 100;
+
+	// The unrolled dot products sum in a different order, so the results
+	// may differ by a few ulps. Teaching accumulates these differences.
+	private static final double APPLY_TOLERANCE = 1E-12;
+	private static final double TRAINING_TOLERANCE = 1E-9;
+
+	public static void main(String[] args) throws Exception {
+		TrainingSet records = GoalKeeperCheatSheetNeuronalNetwork
+				.createTrainingSet();
+		for (String csvFile : CSV_FILES) {
+			PenaltyShotImporter.processFile(new File(csvFile), records);
+		}
+
+		boolean failed = false;
+		for (int hiddenSize : HIDDEN_SIZES) {
+			FeedForwardNetwork scalar = newNetwork(hiddenSize);
+			FeedForwardNetwork unrolled = copy(scalar);
+			unrolled.setUnrolled(true);
+
+			double applyDeviation = applyDeviation(scalar, unrolled, records);
+			failed |= check("apply(), hidden " + hiddenSize, applyDeviation,
+					APPLY_TOLERANCE);
+
+			double outputDeviation = 0.0;
+			for (int epoch = 0; epoch < EPOCHS; epoch++) {
+				outputDeviation = Math.max(outputDeviation,
+						teachEpoch(scalar, unrolled, records));
+			}
+			failed |= check("apply()+backpropagate(), hidden " + hiddenSize,
+					outputDeviation, TRAINING_TOLERANCE);
+			failed |= check("weights after " + EPOCHS + " epochs, hidden "
+					+ hiddenSize, weightDeviation(scalar, unrolled),
+					TRAINING_TOLERANCE);
+		}
+
+		if (failed) {
+			System.exit(1);
+		}
+	}
+
+	/**
+	 * Returns the maximum difference of the outputs of both networks over
+	 * all records.
+	 */
+	private static double applyDeviation(FeedForwardNetwork scalar,
+			FeedForwardNetwork unrolled, TrainingSet records) {
+		double[] in = records.getFeatures();
+		int numOfIn = records.getNumOfFeatures();
+		double deviation = 0.0;
+
+		for (int i = 0; i < records.size(); i++) {
+			scalar.setInputs(in, i * numOfIn);
+			unrolled.setInputs(in, i * numOfIn);
+			scalar.apply();
+			unrolled.apply();
+			deviation = Math.max(deviation, outputDeviation(scalar, unrolled));
+		}
+
+		return deviation;
+	}
+
+	/**
+	 * Teaches both networks one epoch online, one backpropagation per record.
+	 *
+	 * @return The maximum difference of the outputs during the epoch.
+	 */
+	private static double teachEpoch(FeedForwardNetwork scalar,
+			FeedForwardNetwork unrolled, TrainingSet records) {
+		double[] in = records.getFeatures();
+		double[] teach = records.getTargets();
+		int numOfIn = records.getNumOfFeatures();
+		int numOfOut = records.getNumOfTargets();
+		double deviation = 0.0;
+
+		for (int i = 0; i < records.size(); i++) {
+			scalar.setInputs(in, i * numOfIn);
+			unrolled.setInputs(in, i * numOfIn);
+			scalar.apply();
+			unrolled.apply();
+			deviation = Math.max(deviation, outputDeviation(scalar, unrolled));
+			scalar.backpropagate(teach, i * numOfOut);
+			unrolled.backpropagate(teach, i * numOfOut);
+		}
+
+		return deviation;
+	}
+
+	private static double outputDeviation(FeedForwardNetwork a,
+			FeedForwardNetwork b) {
+		double deviation = 0.0;
+		for (int j = 0; j < a.getOutNeurons(); j++) {
+			deviation = Math.max(deviation,
+					Math.abs(a.getOutput(j) - b.getOutput(j)));
+		}
+		return deviation;
+	}
+
+	private static double weightDeviation(FeedForwardNetwork a,
+			FeedForwardNetwork b) {
+		double deviation = 0.0;
+		int i, j;
+
+		for (i = 0; i < a.getInNeurons() + 1; i++)
+			for (j = 0; j < a.getHiddenNeurons(); j++)
+				deviation = Math.max(deviation, Math.abs(a.getWeight(
+						FeedForwardNetwork.INPUT_TO_HIDDEN, i, j)
+						- b.getWeight(FeedForwardNetwork.INPUT_TO_HIDDEN, i, j)));
+
+		for (i = 0; i < a.getHiddenNeurons() + 1; i++)
+			for (j = 0; j < a.getOutNeurons(); j++)
+				deviation = Math.max(deviation, Math.abs(a.getWeight(
+						FeedForwardNetwork.HIDDEN_TO_OUTPUT, i, j)
+						- b.getWeight(FeedForwardNetwork.HIDDEN_TO_OUTPUT, i, j)));
+
+		return deviation;
+	}
+
+	/**
+	 * Prints a deviation and checks it against the tolerance.
+	 *
+	 * @return True if the deviation exceeds the tolerance.
+	 */
+	private static boolean check(String name, double deviation,
+			double tolerance) {
+		System.out.println(name + ": max deviation " + deviation);
+		if (deviation > tolerance) {
+			System.out.println("FAILED: " + name + " deviates by more than "
+					+ tolerance);
+			return true;
+		}
+		return false;
+	}
+
+	private static FeedForwardNetwork newNetwork(int hiddenSize) {
+		FeedForwardNetwork network = new FeedForwardNetwork(
+				GoalKeeperCheatSheetNeuronalNetwork.NUM_OF_INPUT_NODES,
+				hiddenSize,
+				GoalKeeperCheatSheetNeuronalNetwork.NUM_OF_OUTPUT_NODES);
+		network.init();
+		network.setEpsilon(0.05);
+		network.setLearningRate(0.5);
+		return network;
+	}
+
+	private static FeedForwardNetwork copy(FeedForwardNetwork network) {
+		int numOfIn = network.getInNeurons();
+		int numOfHidden = network.getHiddenNeurons();
+		int numOfOut = network.getOutNeurons();
+		double[][] w1 = new double[numOfIn + 1][numOfHidden];
+		double[][] w2 = new double[numOfHidden + 1][numOfOut];
+
+		network.getWeights(w1, w2);
+
+		FeedForwardNetwork copy = new FeedForwardNetwork(numOfIn,
+				numOfHidden, numOfOut);
+		copy.setWeights(w1, w2);
+		copy.setEpsilon(network.getEpsilon());
+		copy.setLearningRate(network.getLearningRate());
+		copy.setActivation(network.getActivation());
+		return copy;
+	}
+}
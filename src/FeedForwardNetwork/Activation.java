@@ -0,0 +1,21 @@
+package FeedForwardNetwork;
+
+/**
+ * A transfer function of the neurons of a FeedForwardNetwork. Implementations
+ * must approximate the logistic function 1 / (1 + e^-x), because the network
+ * derives the gradient from the activation y as y * (1 - y).
+ * 
+ * Implementations must be stateless or immutable, one instance is shared by
+ * all threads applying the network.
+ */
+public interface Activation {
+
+	/**
+	 * Computes the activation of a neuron.
+	 * 
+	 * @param x
+	 *            The netto input of the neuron.
+	 * @return The activation of the neuron. [0<=activation<=1]
+	 */
+	double t(double x);
+}
@@ -0,0 +1,76 @@
+package FeedForwardNetwork;
+
+/**
+ * This class is a data object class containing the accuracy of an Activation
+ * compared to the ExactSigmoid, sampled evenly over an input range.
+ */
+public class ActivationAccuracy {
+	public static final double DEFAULT_RANGE = 20;
+	public static final int DEFAULT_SAMPLES = 100000;
+
+	private final double maxError;
+	private final double avgError;
+	private final double worstInput;
+
+	private ActivationAccuracy(double maxError, double avgError,
+			double worstInput) {
+		this.maxError = maxError;
+		this.avgError = avgError;
+		this.worstInput = worstInput;
+	}
+
+	public static ActivationAccuracy measure(Activation activation) {
+		return measure(activation, DEFAULT_RANGE, DEFAULT_SAMPLES);
+	}
+
+	/**
+	 * Compares an activation to the exact sigmoid.
+	 * 
+	 * @param activation
+	 *            The activation to measure.
+	 * @param range
+	 *            The inputs are sampled from -range to range.
+	 * @param samples
+	 *            The number of sampled inputs. [1<samples]
+	 * @return The accuracy of the activation.
+	 */
+	public static ActivationAccuracy measure(Activation activation,
+			double range, int samples) {
+		double maxError = 0;
+		double totalError = 0;
+		double worstInput = 0;
+
+		for (int i = 0; i < samples; i++) {
+			double x = -range + (2 * range * i) / (samples - 1);
+			double error = Math.abs(activation.t(x)
+					- ExactSigmoid.INSTANCE.t(x));
+
+			if (error > maxError) {
+				maxError = error;
+				worstInput = x;
+			}
+			totalError += error;
+		}
+
+		return new ActivationAccuracy(maxError, totalError / samples,
+				worstInput);
+	}
+
+	public double getMaxError() {
+		return maxError;
+	}
+
+	public double getAvgError() {
+		return avgError;
+	}
+
+	public double getWorstInput() {
+		return worstInput;
+	}
+
+	@Override
+	public String toString() {
+		return "ActivationAccuracy [maxError=" + maxError + ", avgError="
+				+ avgError + ", worstInput=" + worstInput + "]";
+	}
+}
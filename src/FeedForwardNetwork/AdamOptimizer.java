@@ -0,0 +1,88 @@
+package FeedForwardNetwork;
+
+/**
+ * The Adam optimizer. Each weight keeps running averages of the direction (m)
+ * and of its square (v), which scale the step of each weight individually:
+ * 
+ * <pre>
+ * m = beta1 * m + (1 - beta1) * direction
+ * v = beta2 * v + (1 - beta2) * direction^2
+ * weight += learningRate * m' / (sqrt(v') + epsilon)
+ * </pre>
+ * 
+ * m' and v' are m and v corrected by the bias of their zero initialization.
+ * Adam needs a much smaller learning rate than plain gradient descent,
+ * typically 0.001 to 0.01.
+ */
+public class AdamOptimizer extends Optimizer {
+	public static final double DEFAULT_BETA1 = 0.9;
+	public static final double DEFAULT_BETA2 = 0.999;
+	public static final double DEFAULT_EPSILON = 1E-8;
+
+	private final double beta1;
+	private final double beta2;
+	private final double epsilon;
+
+	private int steps;
+	private double correction1; // 1 - beta1^steps
+	private double correction2; // 1 - beta2^steps
+
+	public AdamOptimizer() {
+		this(DEFAULT_BETA1, DEFAULT_BETA2, DEFAULT_EPSILON);
+	}
+
+	/**
+	 * Creates a new Adam optimizer.
+	 * 
+	 * @param beta1
+	 *            The decay of the average direction. [0<=beta1<1]
+	 * @param beta2
+	 *            The decay of the average squared direction. [0<=beta2<1]
+	 * @param epsilon
+	 *            Keeps the step finite for weights without any change so
+	 *            far. [0<epsilon]
+	 */
+	public AdamOptimizer(double beta1, double beta2, double epsilon) {
+		this.beta1 = ((beta1 >= 0) && (beta1 < 1)) ? beta1 : DEFAULT_BETA1;
+		this.beta2 = ((beta2 >= 0) && (beta2 < 1)) ? beta2 : DEFAULT_BETA2;
+		this.epsilon = (epsilon > 0) ? epsilon : DEFAULT_EPSILON;
+		reset();
+	}
+
+	@Override
+	public int getStateSize() {
+		return 2;
+	}
+
+	@Override
+	public void step() {
+		steps++;
+		correction1 = 1 - Math.pow(beta1, steps);
+		correction2 = 1 - Math.pow(beta2, steps);
+	}
+
+	@Override
+	public void reset() {
+		steps = 0;
+		correction1 = 1;
+		correction2 = 1;
+	}
+
+	@Override
+	public void update(double[] weights, double[] state, int off,
+			double[] x, int xOff, double scale, double learningRate, int n) {
+		double g, m, v;
+		int s = 2 * off; // m and v of a weight are stored side by side
+
+		for (int i = 0; i < n; i++, s += 2) {
+			g = scale * x[xOff + i];
+			m = beta1 * state[s] + (1 - beta1) * g;
+			v = beta2 * state[s + 1] + (1 - beta2) * g * g;
+			state[s] = m;
+			state[s + 1] = v;
+
+			weights[off + i] += learningRate * (m / correction1)
+					/ (Math.sqrt(v / correction2) + epsilon);
+		}
+	}
+}
@@ -0,0 +1,21 @@
+package FeedForwardNetwork;
+
+/**
+ * The exact logistic function computed by Math.exp(). This is the default
+ * activation of a FeedForwardNetwork.
+ * 
+ * There is no single precision exp() before Java 7, so the float version
+ * still computes the exponential in double.
+ */
+public class ExactSigmoid implements FloatActivation {
+
+	public static final ExactSigmoid INSTANCE = new ExactSigmoid();
+
+	public double t(double x) {
+		return (double) (1 / (1 + Math.exp((double) -x)));
+	}
+
+	public float t(float x) {
+		return 1 / (1 + (float) Math.exp(-x));
+	}
+}
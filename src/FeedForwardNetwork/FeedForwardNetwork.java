@@ -1,22 +1,26 @@
 package FeedForwardNetwork;
 
 public class FeedForwardNetwork {
-	public static final int MAX_INPUT_LAYER_SIZE = 20;
-	public static final int MAX_HIDDEN_LAYER_SIZE = 40;
-	public static final int MAX_OUTPUT_LAYER_SIZE = 20;
-
 	public static final int INPUT_TO_HIDDEN = 0;
 	public static final int HIDDEN_TO_OUTPUT = 1;
 
 	public static final float DEFAULT_EPSILON = 1;
 	public static final float DEFAULT_LEARNING_RATE = 0;
 
-	private double[] InputLayer = new double[MAX_INPUT_LAYER_SIZE + 1];
-	private double[] HiddenLayer = new double[MAX_HIDDEN_LAYER_SIZE + 1];
-	private double[] OutputLayer = new double[MAX_OUTPUT_LAYER_SIZE];
+	// number of input vectors applyBatch() pushes through one weight row
+	public static final int BATCH_BLOCK_SIZE = 16;
+
+	// the activations used by the single threaded API (setInput(), apply(),
+	// getOutput(), backpropagate()); concurrent callers bring their own
+	// context, see createContext()
+	private NetworkContext context;
 
-	private double[][] weightsToHidden = new double[MAX_INPUT_LAYER_SIZE + 1][MAX_HIDDEN_LAYER_SIZE];
-	private double[][] weightsToOutput = new double[MAX_HIDDEN_LAYER_SIZE + 1][MAX_OUTPUT_LAYER_SIZE];
+	// The weights are stored row-major in flat arrays sized to the configured
+	// topology. One row holds all incoming weights of a single target neuron
+	// (threshold weight last), so the inner loops of apply() and
+	// backpropagate() walk the buffers with unit stride.
+	private double[] weightsToHidden; // [hiddenNeurons][inNeurons + 1]
+	private double[] weightsToOutput; // [outNeurons][hiddenNeurons + 1]
 
 	private int inNeurons;
 	private int hiddenNeurons;
@@ -25,6 +29,22 @@ public class FeedForwardNetwork {
 	private double epsilon; // accepted error
 	private double learningRate;
 
+	private Activation activation = ExactSigmoid.INSTANCE;
+
+	// null: plain gradient descent; otherwise the optimizer's state is kept
+	// in arrays with the same layout as the weights
+	private Optimizer optimizer;
+	private double[] stateToHidden;
+	private double[] stateToOutput;
+
+	// use the unrolled Kernels instead of the scalar loops; the results
+	// deviate from the scalar loops by a few ulps
+	private boolean unrolled = false;
+
+	// changed by every method changing the weights or the activation, so
+	// that results derived from the network can tell when they are stale
+	private int version;
+
 	public FeedForwardNetwork() {
 		configure(1, 1, 1);
 	}
@@ -39,19 +59,26 @@ public class FeedForwardNetwork {
 	}
 
 	public void configure(int in, int hidden, int out) {
-		if ((in > 0) && (in < MAX_INPUT_LAYER_SIZE))
+		if (in > 0)
 			inNeurons = in;
 		else
 			inNeurons = 1;
-		if ((hidden > 0) && (hidden < MAX_HIDDEN_LAYER_SIZE))
+		if (hidden > 0)
 			hiddenNeurons = hidden;
 		else
 			hiddenNeurons = 1;
-		if ((out > 0) && (out < MAX_OUTPUT_LAYER_SIZE))
+		if (out > 0)
 			outNeurons = out;
 		else
 			outNeurons = 1;
 
+		weightsToHidden = new double[hiddenNeurons * (inNeurons + 1)];
+		weightsToOutput = new double[outNeurons * (hiddenNeurons + 1)];
+		allocateOptimizerState();
+
+		context = createContext();
+		version++;
+
 		epsilon = DEFAULT_EPSILON;
 		learningRate = DEFAULT_LEARNING_RATE;
 
@@ -61,69 +88,67 @@ public class FeedForwardNetwork {
 	public void init() {
 		// initialize weights
 
-		int i, j;
+		int i;
 
 		// all neuron activations set to 0
 
-		for (i = 0; i < MAX_INPUT_LAYER_SIZE + 1; i++)
-			InputLayer[i] = 0;
+		context = createContext();
 
-		InputLayer[inNeurons] = 1; // threshold activation (common trick)
+		// the weights of the configured net are set to a random number
+		// between -0.5 and 0.5
 
-		for (i = 0; i < MAX_HIDDEN_LAYER_SIZE + 1; i++)
-			HiddenLayer[i] = 0;
+		for (i = 0; i < weightsToHidden.length; i++)
+			weightsToHidden[i] = (random(100) - 50) / 100.0;
 
-		HiddenLayer[hiddenNeurons] = 1; // threshold activation (common
-										// trick)
+		for (i = 0; i < weightsToOutput.length; i++)
+			weightsToOutput[i] = (random(100) - 50) / 100.0;
 
-		for (i = 0; i < MAX_OUTPUT_LAYER_SIZE; i++)
-			OutputLayer[i] = 0;
+		version++;
 
-		// all weights are set to 0
+		// the optimizer starts from scratch
 
-		for (i = 0; i < MAX_INPUT_LAYER_SIZE + 1; i++)
-			for (j = 0; j < MAX_HIDDEN_LAYER_SIZE; j++)
-				weightsToHidden[i][j] = 0;
-
-		for (i = 0; i < MAX_HIDDEN_LAYER_SIZE + 1; i++)
-			for (j = 0; j < MAX_OUTPUT_LAYER_SIZE; j++)
-				weightsToOutput[i][j] = 0;
-
-		// the weights of the configured net (node subset)
-		// are set to a random number between -0.5 and 0.5
+		allocateOptimizerState();
+	}
 
-		for (i = 0; i < MAX_INPUT_LAYER_SIZE + 1; i++)
-			for (j = 0; j < MAX_HIDDEN_LAYER_SIZE; j++) {
-				double rand = (random(100) - 50) / 100.0;
-				weightsToHidden[i][j] = rand;
-			}
+	private void allocateOptimizerState() {
+		if (optimizer != null) {
+			optimizer.reset();
+			stateToHidden = new double[weightsToHidden.length
+					* optimizer.getStateSize()];
+			stateToOutput = new double[weightsToOutput.length
+					* optimizer.getStateSize()];
+		} else {
+			stateToHidden = null;
+			stateToOutput = null;
+		}
+	}
 
-		for (i = 0; i < MAX_HIDDEN_LAYER_SIZE + 1; i++)
-			for (j = 0; j < MAX_OUTPUT_LAYER_SIZE; j++) {
-				double rand = (random(100) - 50) / 100.0;
-				weightsToOutput[i][j] = rand;
-			}
+	public NetworkContext createContext() {
+		return new NetworkContext(inNeurons, hiddenNeurons, outNeurons);
 	}
 
 	public void setInput(int x, double value) {
+		context.setInput(x, value);
+	}
 
-		if ((x >= 0) && (x < inNeurons) && (value >= 0) && (value <= 1))
-			InputLayer[x] = value;
-
-		// add error handling !
+	public void setInputs(double[] values, int offset) {
+		context.setInputs(values, offset);
 	}
 
 	public void setOutput(int x, double value) {
-
-		if ((x >= 0) && (x < outNeurons) && (value >= 0) && (value <= 1))
-			OutputLayer[x] = value;
-
-		// add error handling !
+		context.setOutput(x, value);
 	}
 
 	public void apply() {
-		int i, j;
+		apply(context);
+	}
+
+	public void apply(NetworkContext context) {
+		int i, j, row;
 		double net;
+		double[] InputLayer = context.InputLayer;
+		double[] HiddenLayer = context.HiddenLayer;
+		double[] OutputLayer = context.OutputLayer;
 
 		// add input check !
 
@@ -133,21 +158,31 @@ public class FeedForwardNetwork {
 
 		InputLayer[inNeurons] = 1; // for threshold computation
 
-		for (j = 0; j < hiddenNeurons; j++) {
-			net = 0; // netto input of a neuron
+		for (j = 0, row = 0; j < hiddenNeurons; j++, row += inNeurons + 1) {
+			if (unrolled) {
+				net = Kernels.dot(weightsToHidden, row, InputLayer, 0,
+						inNeurons + 1);
+			} else {
+				net = 0; // netto input of a neuron
 
-			for (i = 0; i < inNeurons + 1; i++) {
-				net += weightsToHidden[i][j] * InputLayer[i];
+				for (i = 0; i < inNeurons + 1; i++) {
+					net += weightsToHidden[row + i] * InputLayer[i];
+				}
 			}
 
 			HiddenLayer[j] = t(net); // using transfer function (sigmoid)
 		}
 
-		for (j = 0; j < outNeurons; j++) {
-			net = 0; // netto input of a neuron
+		for (j = 0, row = 0; j < outNeurons; j++, row += hiddenNeurons + 1) {
+			if (unrolled) {
+				net = Kernels.dot(weightsToOutput, row, HiddenLayer, 0,
+						hiddenNeurons + 1);
+			} else {
+				net = 0; // netto input of a neuron
 
-			for (i = 0; i < hiddenNeurons + 1; i++) {
-				net += weightsToOutput[i][j] * HiddenLayer[i];
+				for (i = 0; i < hiddenNeurons + 1; i++) {
+					net += weightsToOutput[row + i] * HiddenLayer[i];
+				}
 			}
 
 			OutputLayer[j] = t(net); // using transfer function (sigmoid)
@@ -155,6 +190,84 @@ public class FeedForwardNetwork {
 
 	}
 
+	public void applyBatch(double[][] in, double[][] out) {
+		applyBatch(in, out, context);
+	}
+
+	public void applyBatch(double[][] in, double[][] out,
+			NetworkContext context) {
+		int i, j, s, row, start, end;
+		int inStride = inNeurons + 1;
+		int hiddenStride = hiddenNeurons + 1;
+		double net;
+		double[] input = context.batchInput;
+		double[] hidden = context.batchHidden;
+
+		// add input check !
+
+		// propagate a whole batch of input vectors through the net. The
+		// batch is processed in blocks, every weight row is loaded once per
+		// block and applied to all input vectors of the block.
+
+		for (start = 0; start < in.length; start += BATCH_BLOCK_SIZE) {
+			end = Math.min(start + BATCH_BLOCK_SIZE, in.length);
+
+			// copy the input vectors of the block with the threshold
+			// activation, so the net input is summed up in the same order as
+			// by apply()
+
+			for (s = start; s < end; s++) {
+				System.arraycopy(in[s], 0, input, (s - start) * inStride,
+						inNeurons);
+				input[(s - start) * inStride + inNeurons] = 1;
+			}
+
+			// compute hidden layer activation
+
+			for (j = 0, row = 0; j < hiddenNeurons; j++, row += inStride) {
+				for (s = start; s < end; s++) {
+					if (unrolled) {
+						net = Kernels.dot(weightsToHidden, row, input,
+								(s - start) * inStride, inStride);
+					} else {
+						net = 0; // netto input of a neuron
+
+						for (i = 0; i < inStride; i++) {
+							net += weightsToHidden[row + i]
+									* input[(s - start) * inStride + i];
+						}
+					}
+
+					hidden[(s - start) * hiddenStride + j] = t(net);
+				}
+			}
+
+			for (s = start; s < end; s++) {
+				hidden[(s - start) * hiddenStride + hiddenNeurons] = 1;
+			}
+
+			// compute output layer activation
+
+			for (j = 0, row = 0; j < outNeurons; j++, row += hiddenStride) {
+				for (s = start; s < end; s++) {
+					if (unrolled) {
+						net = Kernels.dot(weightsToOutput, row, hidden,
+								(s - start) * hiddenStride, hiddenStride);
+					} else {
+						net = 0; // netto input of a neuron
+
+						for (i = 0; i < hiddenStride; i++) {
+							net += weightsToOutput[row + i]
+									* hidden[(s - start) * hiddenStride + i];
+						}
+					}
+
+					out[s][j] = t(net); // using transfer function (sigmoid)
+				}
+			}
+		}
+	}
+
 	public double getWeight(int layer, int x, int y) {
 		double ret = -1;
 
@@ -162,7 +275,7 @@ public class FeedForwardNetwork {
 		{
 			if ((x >= 0) && (x < inNeurons + 1) && // includes threshold
 					(y >= 0) && (y < hiddenNeurons)) {
-				ret = weightsToHidden[x][y];
+				ret = weightsToHidden[y * (inNeurons + 1) + x];
 			}
 		}
 
@@ -170,7 +283,7 @@ public class FeedForwardNetwork {
 		{
 			if ((x >= 0) && (x < hiddenNeurons + 1) && // includes threshold
 					(y >= 0) && (y < outNeurons)) {
-				ret = weightsToOutput[x][y];
+				ret = weightsToOutput[y * (hiddenNeurons + 1) + x];
 			}
 		}
 
@@ -180,37 +293,15 @@ public class FeedForwardNetwork {
 	}
 
 	public double getOutput(int x) {
-
-		double ret = -1;
-
-		if ((x >= 0) && (x < outNeurons))
-			ret = OutputLayer[x];
-
-		return ret;
-
-		// add error handling !
+		return context.getOutput(x);
 	}
 
 	public double getInput(int x) {
-
-		double ret = -1;
-
-		if ((x >= 0) && (x < inNeurons))
-			ret = InputLayer[x];
-
-		return ret;
-
-		// add error handling !
+		return context.getInput(x);
 	}
 
 	public double getHidden(int x) {
-
-		double ret = -1;
-
-		if ((x >= 0) && (x < hiddenNeurons))
-			ret = HiddenLayer[x];
-
-		return ret;
+		return context.getHidden(x);
 	}
 
 	public void setEpsilon(double eps) {
@@ -231,12 +322,13 @@ public class FeedForwardNetwork {
 
 		for (i = 0; i < inNeurons + 1; i++)
 			for (j = 0; j < hiddenNeurons; j++)
-				weightsToHidden[i][j] = w1[i][j];
+				weightsToHidden[j * (inNeurons + 1) + i] = w1[i][j];
 
 		for (i = 0; i < hiddenNeurons + 1; i++)
 			for (j = 0; j < outNeurons; j++)
-				weightsToOutput[i][j] = w2[i][j];
+				weightsToOutput[j * (hiddenNeurons + 1) + i] = w2[i][j];
 
+		version++;
 	}
 
 	public void setWeight(int level, int i, int j, double w) {
@@ -248,15 +340,16 @@ public class FeedForwardNetwork {
 			if (level == 0) {
 				if ((i >= 0) && (i < inNeurons + 1) && (j >= 0)
 						&& (j < hiddenNeurons)) {
-					weightsToHidden[i][j] = w;
+					weightsToHidden[j * (inNeurons + 1) + i] = w;
 				}
 			}
 			if (level == 1) {
 				if ((i >= 0) && (i < hiddenNeurons + 1) && (j >= 0)
 						&& (j < outNeurons)) {
-					weightsToOutput[i][j] = w;
+					weightsToOutput[j * (hiddenNeurons + 1) + i] = w;
 				}
 			}
+			version++;
 		}
 	}
 
@@ -266,12 +359,69 @@ public class FeedForwardNetwork {
 
 		for (i = 0; i < inNeurons + 1; i++)
 			for (j = 0; j < hiddenNeurons; j++)
-				w1[i][j] = weightsToHidden[i][j];
+				w1[i][j] = weightsToHidden[j * (inNeurons + 1) + i];
 
 		for (i = 0; i < hiddenNeurons + 1; i++)
 			for (j = 0; j < outNeurons; j++)
-				w2[i][j] = weightsToOutput[i][j];
+				w2[i][j] = weightsToOutput[j * (hiddenNeurons + 1) + i];
+
+	}
+
+	public void setActivation(Activation activation) {
+		if (activation != null) {
+			this.activation = activation;
+			version++;
+		}
+	}
 
+	public Activation getActivation() {
+		return activation;
+	}
+
+	// returns a number that changes whenever the weights or the activation
+	// change; not synchronized, like the weights themselves
+
+	public int getVersion() {
+		return version;
+	}
+
+	// the flat weight arrays, read and written in place by NetworkFile
+
+	double[] getWeightsToHidden() {
+		return weightsToHidden;
+	}
+
+	double[] getWeightsToOutput() {
+		return weightsToOutput;
+	}
+
+	public void setOptimizer(Optimizer optimizer) {
+		this.optimizer = optimizer;
+		allocateOptimizerState();
+	}
+
+	public Optimizer getOptimizer() {
+		return optimizer;
+	}
+
+	public void setUnrolled(boolean unrolled) {
+		this.unrolled = unrolled;
+	}
+
+	public boolean isUnrolled() {
+		return unrolled;
+	}
+
+	public int getInNeurons() {
+		return inNeurons;
+	}
+
+	public int getHiddenNeurons() {
+		return hiddenNeurons;
+	}
+
+	public int getOutNeurons() {
+		return outNeurons;
 	}
 
 	public double getEpsilon() {
@@ -283,19 +433,35 @@ public class FeedForwardNetwork {
 	}
 
 	public void backpropagate(double[] t) {
+		backpropagate(t, context);
+	}
 
-		double[] deltaH = new double[MAX_HIDDEN_LAYER_SIZE];
-		int i, j;
+	public void backpropagate(double[] t, int offset) {
+		backpropagate(t, offset, context);
+	}
+
+	public void backpropagate(double[] t, NetworkContext context) {
+		backpropagate(t, 0, context);
+	}
+
+	public void backpropagate(double[] t, int offset, NetworkContext context) {
+		int i, j, row;
 		double e, y;
 		double delta;
+		double[] InputLayer = context.InputLayer;
+		double[] HiddenLayer = context.HiddenLayer;
+		double[] OutputLayer = context.OutputLayer;
+		double[] deltaH = context.deltaH;
 
 		// neural network learning step
 
-		e = energy(t, OutputLayer);
+		e = energy(t, offset, OutputLayer);
 
 		if (epsilon < e) {
 			// backpropagation
 
+			version++;
+
 			// update weights to output layer
 			// Formula : delta_wij = lernrate dj hiddenlayer_i
 			// dj = (tj-yj)yj(1-yj)
@@ -303,40 +469,147 @@ public class FeedForwardNetwork {
 			for (i = 0; i < hiddenNeurons + 1; i++)
 				deltaH[i] = 0;
 
-			for (j = 0; j < outNeurons; j++) {
-				y = OutputLayer[j];
-				delta = (t[j] - y) * y * (1 - y);
+			if (optimizer != null)
+				optimizer.step();
 
-				for (i = 0; i < hiddenNeurons + 1; i++) {
-					deltaH[i] += delta * weightsToOutput[i][j];
-					weightsToOutput[i][j] += learningRate * delta
-							* HiddenLayer[i];
+			for (j = 0, row = 0; j < outNeurons; j++, row += hiddenNeurons + 1) {
+				y = OutputLayer[j];
+				delta = (t[offset + j] - y) * y * (1 - y);
+
+				if (optimizer != null) {
+					Kernels.axpy(delta, weightsToOutput, row, deltaH, 0,
+							hiddenNeurons + 1);
+					optimizer.update(weightsToOutput, stateToOutput, row,
+							HiddenLayer, 0, delta, learningRate,
+							hiddenNeurons + 1);
+				} else if (unrolled) {
+					Kernels.axpy(delta, weightsToOutput, row, deltaH, 0,
+							hiddenNeurons + 1);
+					Kernels.axpy(learningRate * delta, HiddenLayer, 0,
+							weightsToOutput, row, hiddenNeurons + 1);
+				} else {
+					for (i = 0; i < hiddenNeurons + 1; i++) {
+						deltaH[i] += delta * weightsToOutput[row + i];
+						weightsToOutput[row + i] += learningRate * delta
+								* HiddenLayer[i];
+					}
 				}
 			}
 
-			for (i = 0; i < hiddenNeurons; i++) {
+			for (i = 0, row = 0; i < hiddenNeurons; i++, row += inNeurons + 1) {
 				delta = deltaH[i] * HiddenLayer[i] * (1 - HiddenLayer[i]);
 
-				for (j = 0; j < inNeurons + 1; j++) {
-					weightsToHidden[j][i] += learningRate * delta
-							* InputLayer[j];
+				if (optimizer != null) {
+					optimizer.update(weightsToHidden, stateToHidden, row,
+							InputLayer, 0, delta, learningRate, inNeurons + 1);
+				} else if (unrolled) {
+					Kernels.axpy(learningRate * delta, InputLayer, 0,
+							weightsToHidden, row, inNeurons + 1);
+				} else {
+					for (j = 0; j < inNeurons + 1; j++) {
+						weightsToHidden[row + j] += learningRate * delta
+								* InputLayer[j];
+					}
 				}
 			}
 		}
 	}
 
+	public Gradient createGradient() {
+		return new Gradient(inNeurons, hiddenNeurons, outNeurons);
+	}
+
+	public void accumulateGradient(double[] t, Gradient gradient) {
+		accumulateGradient(t, context, gradient);
+	}
+
+	public void accumulateGradient(double[] t, int offset, Gradient gradient) {
+		accumulateGradient(t, offset, context, gradient);
+	}
+
+	public void accumulateGradient(double[] t, NetworkContext context,
+			Gradient gradient) {
+		accumulateGradient(t, 0, context, gradient);
+	}
+
+	public void accumulateGradient(double[] t, int offset,
+			NetworkContext context, Gradient gradient) {
+		int i, j, row;
+		double e, y;
+		double delta;
+		double[] InputLayer = context.InputLayer;
+		double[] HiddenLayer = context.HiddenLayer;
+		double[] OutputLayer = context.OutputLayer;
+		double[] deltaH = context.deltaH;
+
+		// like backpropagate(), but the weight changes are only added to the
+		// gradient, the weights stay untouched until applyGradient()
+
+		gradient.samples++;
+
+		e = energy(t, offset, OutputLayer);
+
+		if (epsilon < e) {
+			for (i = 0; i < hiddenNeurons + 1; i++)
+				deltaH[i] = 0;
+
+			for (j = 0, row = 0; j < outNeurons; j++, row += hiddenNeurons + 1) {
+				y = OutputLayer[j];
+				delta = (t[offset + j] - y) * y * (1 - y);
+
+				Kernels.axpy(delta, weightsToOutput, row, deltaH, 0,
+						hiddenNeurons + 1);
+				Kernels.axpy(delta, HiddenLayer, 0, gradient.toOutput, row,
+						hiddenNeurons + 1);
+			}
+
+			for (i = 0, row = 0; i < hiddenNeurons; i++, row += inNeurons + 1) {
+				delta = deltaH[i] * HiddenLayer[i] * (1 - HiddenLayer[i]);
+
+				Kernels.axpy(delta, InputLayer, 0, gradient.toHidden, row,
+						inNeurons + 1);
+			}
+		}
+	}
+
+	public void applyGradient(Gradient gradient) {
+		// the accumulated changes are summed up, not averaged, so that a
+		// learning rate behaves alike in online and mini-batch training
+
+		version++;
+
+		if (optimizer != null) {
+			optimizer.step();
+			optimizer.update(weightsToOutput, stateToOutput, 0,
+					gradient.toOutput, 0, 1, learningRate,
+					weightsToOutput.length);
+			optimizer.update(weightsToHidden, stateToHidden, 0,
+					gradient.toHidden, 0, 1, learningRate,
+					weightsToHidden.length);
+		} else {
+			Kernels.axpy(learningRate, gradient.toOutput, 0, weightsToOutput,
+					0, weightsToOutput.length);
+			Kernels.axpy(learningRate, gradient.toHidden, 0, weightsToHidden,
+					0, weightsToHidden.length);
+		}
+	}
+
 	public double t(double x) {
-		return (double) (1 / (1 + Math.exp((double) -x)));
+		return activation.t(x);
 	}
 
 	public double energy(double[] t, double[] y) {
+		return energy(t, 0, y);
+	}
+
+	public double energy(double[] t, int offset, double[] y) {
 		// no range checks !!
 
 		double energy = 0;
 		int i;
 
 		for (i = 0; i < outNeurons; i++) {
-			energy += (t[i] - y[i]) * (t[i] - y[i]);
+			energy += (t[offset + i] - y[i]) * (t[offset + i] - y[i]);
 		}
 
 		energy /= 2.0;
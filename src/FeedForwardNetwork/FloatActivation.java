@@ -0,0 +1,18 @@
+package FeedForwardNetwork;
+
+/**
+ * A transfer function which can also be computed in single precision, used
+ * by a FloatFeedForwardNetwork without widening its activations to double.
+ * Both methods must approximate the same function.
+ */
+public interface FloatActivation extends Activation {
+
+	/**
+	 * Computes the activation of a neuron in single precision.
+	 * 
+	 * @param x
+	 *            The netto input of the neuron.
+	 * @return The activation of the neuron. [0<=activation<=1]
+	 */
+	float t(float x);
+}
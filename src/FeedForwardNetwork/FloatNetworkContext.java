@@ -0,0 +1,93 @@
+package FeedForwardNetwork;
+
+/**
+ * This class holds the activations and scratch buffers of one pass through a
+ * FloatFeedForwardNetwork. The network itself only holds the weights, so any number
+ * of threads can apply the same trained network at once, as long as every
+ * thread uses its own context and no thread changes the weights meanwhile.
+ * 
+ * A context is created by FloatFeedForwardNetwork.createContext() and fits the
+ * topology of the network it was created by.
+ */
+public class FloatNetworkContext {
+	final float[] InputLayer;
+	final float[] HiddenLayer;
+	final float[] OutputLayer;
+
+	// scratch buffers, allocated once so that applying and training the
+	// network does not allocate
+	final float[] deltaH;
+	final float[] batchHidden;
+
+	private final int inNeurons;
+	private final int hiddenNeurons;
+	private final int outNeurons;
+
+	FloatNetworkContext(int in, int hidden, int out) {
+		inNeurons = in;
+		hiddenNeurons = hidden;
+		outNeurons = out;
+
+		InputLayer = new float[inNeurons + 1];
+		HiddenLayer = new float[hiddenNeurons + 1];
+		OutputLayer = new float[outNeurons];
+
+		InputLayer[inNeurons] = 1; // threshold activation (common trick)
+		HiddenLayer[hiddenNeurons] = 1; // threshold activation (common
+										// trick)
+
+		deltaH = new float[hiddenNeurons + 1];
+		batchHidden = new float[FloatFeedForwardNetwork.BATCH_BLOCK_SIZE
+				* (hiddenNeurons + 1)];
+	}
+
+	public void setInput(int x, float value) {
+
+		if ((x >= 0) && (x < inNeurons) && (value >= 0) && (value <= 1))
+			InputLayer[x] = value;
+
+		// add error handling !
+	}
+
+	public void setOutput(int x, float value) {
+
+		if ((x >= 0) && (x < outNeurons) && (value >= 0) && (value <= 1))
+			OutputLayer[x] = value;
+
+		// add error handling !
+	}
+
+	public float getOutput(int x) {
+
+		float ret = -1;
+
+		if ((x >= 0) && (x < outNeurons))
+			ret = OutputLayer[x];
+
+		return ret;
+
+		// add error handling !
+	}
+
+	public float getInput(int x) {
+
+		float ret = -1;
+
+		if ((x >= 0) && (x < inNeurons))
+			ret = InputLayer[x];
+
+		return ret;
+
+		// add error handling !
+	}
+
+	public float getHidden(int x) {
+
+		float ret = -1;
+
+		if ((x >= 0) && (x < hiddenNeurons))
+			ret = HiddenLayer[x];
+
+		return ret;
+	}
+}
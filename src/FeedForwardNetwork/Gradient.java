@@ -0,0 +1,53 @@
+package FeedForwardNetwork;
+
+/**
+ * This class accumulates the weight changes of several training records, so
+ * that a FeedForwardNetwork can be updated once per mini-batch instead of once
+ * per record. The buffers have the same row-major layout as the weights of
+ * the network that created the gradient.
+ * 
+ * The accumulated values point in the direction of descent and are not yet
+ * scaled by the learning rate, see FeedForwardNetwork.accumulateGradient()
+ * and FeedForwardNetwork.applyGradient().
+ */
+public class Gradient {
+	final double[] toHidden; // [hiddenNeurons][inNeurons + 1]
+	final double[] toOutput; // [outNeurons][hiddenNeurons + 1]
+
+	int samples;
+
+	Gradient(int in, int hidden, int out) {
+		toHidden = new double[hidden * (in + 1)];
+		toOutput = new double[out * (hidden + 1)];
+	}
+
+	public void clear() {
+		int i;
+
+		for (i = 0; i < toHidden.length; i++)
+			toHidden[i] = 0;
+
+		for (i = 0; i < toOutput.length; i++)
+			toOutput[i] = 0;
+
+		samples = 0;
+	}
+
+	/**
+	 * Adds the weight changes accumulated by another gradient of the same
+	 * network to this gradient.
+	 */
+	public void add(Gradient other) {
+		Kernels.axpy(1, other.toHidden, 0, toHidden, 0, toHidden.length);
+		Kernels.axpy(1, other.toOutput, 0, toOutput, 0, toOutput.length);
+		samples += other.samples;
+	}
+
+	/**
+	 * Returns the number of training records accumulated since the last
+	 * clear().
+	 */
+	public int getSamples() {
+		return samples;
+	}
+}
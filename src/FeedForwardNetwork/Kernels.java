@@ -0,0 +1,54 @@
+package FeedForwardNetwork;
+
+/**
+ * The unrolled loop kernels of FeedForwardNetwork. Every loop is unrolled by
+ * four with independent accumulators, which breaks the dependency chain of
+ * the scalar loops and lets the JIT compiler map them to SIMD instructions.
+ * 
+ * axpy() computes exactly the same values as the scalar loop, dot() sums in a
+ * different order and therefore deviates by a few ulps.
+ */
+final class Kernels {
+
+	private Kernels() {
+	}
+
+	/**
+	 * Computes the dot product of a[aOff .. aOff + n - 1] and b[bOff .. bOff +
+	 * n - 1].
+	 */
+	static double dot(double[] a, int aOff, double[] b, int bOff, int n) {
+		double s0 = 0, s1 = 0, s2 = 0, s3 = 0;
+		int i = 0;
+
+		for (; i <= n - 4; i += 4) {
+			s0 += a[aOff + i] * b[bOff + i];
+			s1 += a[aOff + i + 1] * b[bOff + i + 1];
+			s2 += a[aOff + i + 2] * b[bOff + i + 2];
+			s3 += a[aOff + i + 3] * b[bOff + i + 3];
+		}
+		for (; i < n; i++) {
+			s0 += a[aOff + i] * b[bOff + i];
+		}
+
+		return (s0 + s1) + (s2 + s3);
+	}
+
+	/**
+	 * Adds alpha * x[xOff .. xOff + n - 1] to y[yOff .. yOff + n - 1].
+	 */
+	static void axpy(double alpha, double[] x, int xOff, double[] y,
+			int yOff, int n) {
+		int i = 0;
+
+		for (; i <= n - 4; i += 4) {
+			y[yOff + i] += alpha * x[xOff + i];
+			y[yOff + i + 1] += alpha * x[xOff + i + 1];
+			y[yOff + i + 2] += alpha * x[xOff + i + 2];
+			y[yOff + i + 3] += alpha * x[xOff + i + 3];
+		}
+		for (; i < n; i++) {
+			y[yOff + i] += alpha * x[xOff + i];
+		}
+	}
+}
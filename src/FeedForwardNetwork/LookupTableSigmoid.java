@@ -0,0 +1,106 @@
+package FeedForwardNetwork;
+
+/**
+ * The logistic function interpolated linearly from a precomputed table. The
+ * table covers the range [-range, range], outside of it the activation is
+ * saturated to the value at the table's border.
+ * 
+ * Within the range the maximum error is about 0.05 * (range / resolution)^2,
+ * e.g. 7.3E-7 for the default table of 4096 intervals over [-16, 16]. Outside
+ * of it the error is at most 1 / (1 + e^range).
+ * 
+ * The float version interpolates in a copy of the table in single precision.
+ */
+public class LookupTableSigmoid implements FloatActivation {
+
+	public static final int DEFAULT_RESOLUTION = 4096;
+	public static final double DEFAULT_RANGE = 16;
+
+	private final double[] table;
+	private final float[] floatTable;
+	private final double range;
+	private final double scale;
+	private final float floatRange;
+	private final float floatScale;
+	private final int last;
+
+	public LookupTableSigmoid() {
+		this(DEFAULT_RESOLUTION, DEFAULT_RANGE);
+	}
+
+	/**
+	 * Creates a new lookup table.
+	 * 
+	 * @param resolution
+	 *            The number of intervals the range is divided into. [0<resolution]
+	 * @param range
+	 *            The table covers the inputs from -range to range. [0<range]
+	 */
+	public LookupTableSigmoid(int resolution, double range) {
+		if (resolution < 1) {
+			resolution = DEFAULT_RESOLUTION;
+		}
+		if (!(range > 0)) {
+			range = DEFAULT_RANGE;
+		}
+
+		this.range = range;
+		this.floatRange = (float) range;
+		this.scale = resolution / (2 * range);
+		this.floatScale = (float) scale;
+		this.last = resolution;
+
+		// one entry more than intervals, so that the upper neighbour of the
+		// last interval exists
+		table = new double[resolution + 1];
+		floatTable = new float[resolution + 1];
+		for (int i = 0; i <= resolution; i++) {
+			table[i] = ExactSigmoid.INSTANCE.t(i / scale - range);
+			floatTable[i] = (float) table[i];
+		}
+	}
+
+	public double t(double x) {
+		if (x <= -range) {
+			return table[0];
+		}
+		if (x >= range) {
+			return table[last];
+		}
+
+		double position = (x + range) * scale;
+		int i = (int) position;
+		if (i >= last) {
+			return table[last];
+		}
+		double fraction = position - i;
+
+		return table[i] + fraction * (table[i + 1] - table[i]);
+	}
+
+	public float t(float x) {
+		if (x <= -floatRange) {
+			return floatTable[0];
+		}
+		if (x >= floatRange) {
+			return floatTable[last];
+		}
+
+		float position = (x + floatRange) * floatScale;
+		int i = (int) position;
+		if (i >= last) {
+			return floatTable[last];
+		}
+		float fraction = position - i;
+
+		return floatTable[i] + fraction * (floatTable[i + 1] - floatTable[i]);
+	}
+
+	public int getResolution() {
+		return last;
+	}
+
+	public double getRange() {
+		return range;
+	}
+}
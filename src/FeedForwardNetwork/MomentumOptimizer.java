@@ -0,0 +1,70 @@
+package FeedForwardNetwork;
+
+/**
+ * Gradient descent with momentum, optionally with Nesterov's accelerated
+ * gradient. Each weight keeps a velocity v:
+ * 
+ * <pre>
+ * v = momentum * v + learningRate * direction
+ * weight += v                                          (classic)
+ * weight += momentum * v + learningRate * direction    (Nesterov)
+ * </pre>
+ */
+public class MomentumOptimizer extends Optimizer {
+	public static final double DEFAULT_MOMENTUM = 0.9;
+
+	private final double momentum;
+	private final boolean nesterov;
+
+	public MomentumOptimizer() {
+		this(DEFAULT_MOMENTUM, false);
+	}
+
+	/**
+	 * Creates a new momentum optimizer.
+	 * 
+	 * @param momentum
+	 *            The fraction of the velocity kept per step. [0<=momentum<1]
+	 * @param nesterov
+	 *            If Nesterov's accelerated gradient is used.
+	 */
+	public MomentumOptimizer(double momentum, boolean nesterov) {
+		if ((momentum >= 0) && (momentum < 1))
+			this.momentum = momentum;
+		else
+			this.momentum = DEFAULT_MOMENTUM;
+		this.nesterov = nesterov;
+	}
+
+	@Override
+	public int getStateSize() {
+		return 1;
+	}
+
+	@Override
+	public void update(double[] weights, double[] state, int off,
+			double[] x, int xOff, double scale, double learningRate, int n) {
+		double alpha = learningRate * scale;
+		double change, v;
+
+		for (int i = 0; i < n; i++) {
+			change = alpha * x[xOff + i];
+			v = momentum * state[off + i] + change;
+			state[off + i] = v;
+
+			if (nesterov) {
+				weights[off + i] += momentum * v + change;
+			} else {
+				weights[off + i] += v;
+			}
+		}
+	}
+
+	public double getMomentum() {
+		return momentum;
+	}
+
+	public boolean isNesterov() {
+		return nesterov;
+	}
+}
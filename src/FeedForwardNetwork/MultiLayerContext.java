@@ -0,0 +1,58 @@
+package FeedForwardNetwork;
+
+/**
+ * This class holds the activations and scratch buffers of one pass through a
+ * MultiLayerNetwork, see NetworkContext. The activations of all layers are
+ * stored in one array, each layer followed by its threshold activation.
+ * 
+ * A context is created by MultiLayerNetwork.createContext() and fits the
+ * topology of the network it was created by.
+ */
+public class MultiLayerContext {
+	final double[] activations;
+	final double[] deltas;
+
+	private final int[] sizes;
+	private final int[] offsets;
+
+	MultiLayerContext(int[] sizes, int[] offsets) {
+		this.sizes = sizes;
+		this.offsets = offsets;
+
+		int last = sizes.length - 1;
+		activations = new double[offsets[last] + sizes[last] + 1];
+		deltas = new double[activations.length];
+
+		for (int l = 0; l <= last; l++) {
+			// threshold activation (common trick)
+			activations[offsets[l] + sizes[l]] = 1;
+		}
+	}
+
+	public void setInput(int x, double value) {
+
+		if ((x >= 0) && (x < sizes[0]) && (value >= 0) && (value <= 1))
+			activations[x] = value;
+
+		// add error handling !
+	}
+
+	public double getOutput(int x) {
+		return getActivation(sizes.length - 1, x);
+	}
+
+	public double getInput(int x) {
+		return getActivation(0, x);
+	}
+
+	public double getActivation(int layer, int x) {
+
+		double ret = -1;
+
+		if ((layer >= 0) && (layer < sizes.length) && (x >= 0)
+				&& (x < sizes[layer]))
+			ret = activations[offsets[layer] + x];
+
+		return ret;
+	}
+}
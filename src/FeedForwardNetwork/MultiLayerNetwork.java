@@ -0,0 +1,313 @@
+package FeedForwardNetwork;
+
+/**
+ * A feed forward network with any number of hidden layers. It offers the API
+ * of FeedForwardNetwork, but the layers are numbered: layer 0 is the input
+ * layer, layer getNumOfLayers() - 1 the output layer, and weight layer l
+ * connects layer l to layer l + 1.
+ * 
+ * The weights of all layers are stored in one array. Each weight layer is a
+ * row-major block holding one row of incoming weights per target neuron
+ * (threshold weight last). With three layers the network computes exactly
+ * the same as a FeedForwardNetwork with the same weights.
+ */
+public class MultiLayerNetwork {
+	public static final float DEFAULT_EPSILON = 1;
+	public static final float DEFAULT_LEARNING_RATE = 0;
+
+	private int[] sizes; // neurons per layer, without threshold
+	private int[] weightOffsets; // start of weight layer l in weights, the
+									// last entry is the number of weights
+	private int[] activationOffsets; // start of layer l in the activations
+
+	private double[] weights;
+
+	// the activations used by the single threaded API, see NetworkContext
+	private MultiLayerContext context;
+
+	private double epsilon; // accepted error
+	private double learningRate;
+
+	private Activation activation = ExactSigmoid.INSTANCE;
+
+	/**
+	 * Creates a new network.
+	 * 
+	 * @param sizes
+	 *            The number of neurons of each layer, starting with the input
+	 *            layer and ending with the output layer. [1<layers]
+	 */
+	public MultiLayerNetwork(int... sizes) {
+		configure(sizes);
+	}
+
+	public void configure(int... sizes) {
+		int l;
+
+		if (sizes.length < 2) {
+			sizes = new int[] { 1, 1 };
+		}
+
+		this.sizes = new int[sizes.length];
+		for (l = 0; l < sizes.length; l++) {
+			if (sizes[l] > 0)
+				this.sizes[l] = sizes[l];
+			else
+				this.sizes[l] = 1;
+		}
+
+		weightOffsets = new int[sizes.length];
+		activationOffsets = new int[sizes.length];
+		for (l = 1; l < sizes.length; l++) {
+			weightOffsets[l] = weightOffsets[l - 1] + this.sizes[l]
+					* (this.sizes[l - 1] + 1);
+			activationOffsets[l] = activationOffsets[l - 1]
+					+ this.sizes[l - 1] + 1;
+		}
+
+		// weightOffsets[last] is the total number of weights
+		weights = new double[weightOffsets[sizes.length - 1]];
+
+		context = createContext();
+
+		epsilon = DEFAULT_EPSILON;
+		learningRate = DEFAULT_LEARNING_RATE;
+	}
+
+	public void init() {
+		// all neuron activations set to 0
+
+		context = createContext();
+
+		// the weights are set to a random number between -0.5 and 0.5
+
+		for (int i = 0; i < weights.length; i++)
+			weights[i] = (random(100) - 50) / 100.0;
+	}
+
+	public int random(int x) {
+		double rand = ((Math.random() * x) % (x + 1));
+		return (int) rand;
+	}
+
+	public MultiLayerContext createContext() {
+		return new MultiLayerContext(sizes, activationOffsets);
+	}
+
+	public void setInput(int x, double value) {
+		context.setInput(x, value);
+	}
+
+	public double getInput(int x) {
+		return context.getInput(x);
+	}
+
+	public double getOutput(int x) {
+		return context.getOutput(x);
+	}
+
+	public double getActivation(int layer, int x) {
+		return context.getActivation(layer, x);
+	}
+
+	public void apply() {
+		apply(context);
+	}
+
+	public void apply(MultiLayerContext context) {
+		int i, j, l, row, source, target;
+		int numOfSources;
+		double net;
+		double[] activations = context.activations;
+
+		// add input check !
+
+		// propagate activation through the net, layer by layer
+
+		for (l = 0; l < sizes.length - 1; l++) {
+			numOfSources = sizes[l] + 1; // includes threshold
+			source = activationOffsets[l];
+			target = activationOffsets[l + 1];
+			row = weightOffsets[l];
+
+			activations[source + sizes[l]] = 1; // for threshold computation
+
+			for (j = 0; j < sizes[l + 1]; j++, row += numOfSources) {
+				net = 0; // netto input of a neuron
+
+				for (i = 0; i < numOfSources; i++) {
+					net += weights[row + i] * activations[source + i];
+				}
+
+				// using transfer function (sigmoid)
+				activations[target + j] = t(net);
+			}
+		}
+	}
+
+	public void backpropagate(double[] t) {
+		backpropagate(t, context);
+	}
+
+	public void backpropagate(double[] t, MultiLayerContext context) {
+		int i, j, l, row, source, target;
+		int numOfSources;
+		int last = sizes.length - 1;
+		double y, delta;
+		double[] activations = context.activations;
+		double[] deltas = context.deltas;
+
+		// neural network learning step
+
+		if (epsilon < energy(t, activations, activationOffsets[last])) {
+			// deltas of the output layer: dj = (tj-yj)yj(1-yj)
+
+			target = activationOffsets[last];
+			for (j = 0; j < sizes[last]; j++) {
+				y = activations[target + j];
+				deltas[target + j] = (t[j] - y) * y * (1 - y);
+			}
+
+			// backpropagation from the output to the input layer. Each weight
+			// layer is walked once: the deltas of the source layer are
+			// gathered from the weights before they are updated.
+			// Formula : delta_wij = lernrate dj activation_i
+
+			for (l = last - 1; l >= 0; l--) {
+				numOfSources = sizes[l] + 1; // includes threshold
+				source = activationOffsets[l];
+				target = activationOffsets[l + 1];
+				row = weightOffsets[l];
+
+				if (l > 0) {
+					for (i = 0; i < numOfSources; i++)
+						deltas[source + i] = 0;
+				}
+
+				for (j = 0; j < sizes[l + 1]; j++, row += numOfSources) {
+					delta = deltas[target + j];
+
+					if (l > 0) {
+						for (i = 0; i < numOfSources; i++) {
+							deltas[source + i] += delta * weights[row + i];
+							weights[row + i] += learningRate * delta
+									* activations[source + i];
+						}
+					} else {
+						for (i = 0; i < numOfSources; i++) {
+							weights[row + i] += learningRate * delta
+									* activations[source + i];
+						}
+					}
+				}
+
+				if (l > 0) {
+					for (i = 0; i < sizes[l]; i++) {
+						y = activations[source + i];
+						deltas[source + i] = deltas[source + i] * y * (1 - y);
+					}
+				}
+			}
+		}
+	}
+
+	public double getWeight(int layer, int x, int y) {
+		double ret = -1;
+
+		if (isWeight(layer, x, y)) {
+			ret = weights[weightIndex(layer, x, y)];
+		}
+
+		return ret;
+
+		// add error handling !
+	}
+
+	public void setWeight(int layer, int x, int y, double w) {
+		if (isWeight(layer, x, y)) {
+			weights[weightIndex(layer, x, y)] = w;
+		}
+
+		// add error handling !
+	}
+
+	public int getNumOfLayers() {
+		return sizes.length;
+	}
+
+	public int getLayerSize(int layer) {
+		int ret = -1;
+
+		if ((layer >= 0) && (layer < sizes.length))
+			ret = sizes[layer];
+
+		return ret;
+	}
+
+	public void setEpsilon(double eps) {
+		if (eps > 0) {
+			epsilon = eps;
+		}
+	}
+
+	public void setLearningRate(double mu) {
+		if ((mu > 0) && (mu <= 10)) {
+			learningRate = mu;
+		}
+	}
+
+	public double getEpsilon() {
+		return epsilon;
+	}
+
+	public double getLearningRate() {
+		return learningRate;
+	}
+
+	public void setActivation(Activation activation) {
+		if (activation != null) {
+			this.activation = activation;
+		}
+	}
+
+	public Activation getActivation() {
+		return activation;
+	}
+
+	public double t(double x) {
+		return activation.t(x);
+	}
+
+	public double energy(double[] t, double[] y) {
+		return energy(t, y, 0);
+	}
+
+	private double energy(double[] t, double[] y, int offset) {
+		// no range checks !!
+
+		double energy = 0;
+		int i;
+
+		for (i = 0; i < sizes[sizes.length - 1]; i++) {
+			energy += (t[i] - y[offset + i]) * (t[i] - y[offset + i]);
+		}
+
+		energy /= 2.0;
+
+		return energy;
+	}
+
+	/**
+	 * Checks whether weight layer 'layer' connects neuron x (or the
+	 * threshold) of layer 'layer' to neuron y of layer 'layer' + 1.
+	 */
+	private boolean isWeight(int layer, int x, int y) {
+		return (layer >= 0) && (layer < sizes.length - 1) && (x >= 0)
+				&& (x < sizes[layer] + 1) && // includes threshold
+				(y >= 0) && (y < sizes[layer + 1]);
+	}
+
+	private int weightIndex(int layer, int x, int y) {
+		return weightOffsets[layer] + y * (sizes[layer] + 1) + x;
+	}
+}
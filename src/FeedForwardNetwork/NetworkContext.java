@@ -0,0 +1,102 @@
+package FeedForwardNetwork;
+
+/**
+ * This class holds the activations and scratch buffers of one pass through a
+ * FeedForwardNetwork. The network itself only holds the weights, so any number
+ * of threads can apply the same trained network at once, as long as every
+ * thread uses its own context and no thread changes the weights meanwhile.
+ * 
+ * A context is created by FeedForwardNetwork.createContext() and fits the
+ * topology of the network it was created by.
+ */
+public class NetworkContext {
+	final double[] InputLayer;
+	final double[] HiddenLayer;
+	final double[] OutputLayer;
+
+	// scratch buffers, allocated once so that applying and training the
+	// network does not allocate
+	final double[] deltaH;
+	final double[] batchInput;
+	final double[] batchHidden;
+
+	private final int inNeurons;
+	private final int hiddenNeurons;
+	private final int outNeurons;
+
+	NetworkContext(int in, int hidden, int out) {
+		inNeurons = in;
+		hiddenNeurons = hidden;
+		outNeurons = out;
+
+		InputLayer = new double[inNeurons + 1];
+		HiddenLayer = new double[hiddenNeurons + 1];
+		OutputLayer = new double[outNeurons];
+
+		InputLayer[inNeurons] = 1; // threshold activation (common trick)
+		HiddenLayer[hiddenNeurons] = 1; // threshold activation (common
+										// trick)
+
+		deltaH = new double[hiddenNeurons + 1];
+		batchInput = new double[FeedForwardNetwork.BATCH_BLOCK_SIZE
+				* (inNeurons + 1)];
+		batchHidden = new double[FeedForwardNetwork.BATCH_BLOCK_SIZE
+				* (hiddenNeurons + 1)];
+	}
+
+	public void setInput(int x, double value) {
+
+		if ((x >= 0) && (x < inNeurons) && (value >= 0) && (value <= 1))
+			InputLayer[x] = value;
+
+		// add error handling !
+	}
+
+	public void setInputs(double[] values, int offset) {
+		for (int x = 0; x < inNeurons; x++) {
+			setInput(x, values[offset + x]);
+		}
+	}
+
+	public void setOutput(int x, double value) {
+
+		if ((x >= 0) && (x < outNeurons) && (value >= 0) && (value <= 1))
+			OutputLayer[x] = value;
+
+		// add error handling !
+	}
+
+	public double getOutput(int x) {
+
+		double ret = -1;
+
+		if ((x >= 0) && (x < outNeurons))
+			ret = OutputLayer[x];
+
+		return ret;
+
+		// add error handling !
+	}
+
+	public double getInput(int x) {
+
+		double ret = -1;
+
+		if ((x >= 0) && (x < inNeurons))
+			ret = InputLayer[x];
+
+		return ret;
+
+		// add error handling !
+	}
+
+	public double getHidden(int x) {
+
+		double ret = -1;
+
+		if ((x >= 0) && (x < hiddenNeurons))
+			ret = HiddenLayer[x];
+
+		return ret;
+	}
+}
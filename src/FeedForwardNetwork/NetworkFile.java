@@ -0,0 +1,172 @@
+package FeedForwardNetwork;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * This class saves a FeedForwardNetwork to a versioned binary file and loads
+ * it back, so a taught network can be used without teaching it again. The
+ * file holds the topology, the hyperparameters, the activation and all
+ * weights; the state of an optimizer is not saved.
+ * 
+ * The layout of the file (big-endian) is:
+ * 
+ * <pre>
+ * int     MAGIC
+ * short   FORMAT_VERSION
+ * short   activation (ACTIVATION_EXACT, _LOOKUP_TABLE or _RATIONAL)
+ * int     in, hidden and out neurons
+ * double  epsilon and learning rate
+ * int     resolution and double range of a LookupTableSigmoid, else 0
+ * double  weights to hidden, [hidden][in + 1] row-major, threshold last
+ * double  weights to output, [out][hidden + 1] row-major, threshold last
+ * </pre>
+ * 
+ * Both saving and loading move the weights as one block; loading reads them
+ * from the memory-mapped file.
+ */
+public class NetworkFile {
+	public static final int MAGIC = 0x474B4E4E; // "GKNN"
+	public static final short FORMAT_VERSION = 1;
+	public static final int HEADER_SIZE = 48;
+
+	public static final short ACTIVATION_EXACT = 0;
+	public static final short ACTIVATION_LOOKUP_TABLE = 1;
+	public static final short ACTIVATION_RATIONAL = 2;
+
+	/**
+	 * Saves a network.
+	 * 
+	 * @param network
+	 *            The network to save.
+	 * @param file
+	 *            The file the network is written to.
+	 * @throws IOException
+	 *             If the file could not be written or the network uses an
+	 *             activation that can not be saved.
+	 */
+	public static void save(FeedForwardNetwork network, File file)
+			throws IOException {
+		double[] weightsToHidden = network.getWeightsToHidden();
+		double[] weightsToOutput = network.getWeightsToOutput();
+		Activation activation = network.getActivation();
+
+		ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE
+				+ (weightsToHidden.length + weightsToOutput.length) * 8);
+		buffer.putInt(MAGIC);
+		buffer.putShort(FORMAT_VERSION);
+		if (activation instanceof ExactSigmoid) {
+			buffer.putShort(ACTIVATION_EXACT);
+		} else if (activation instanceof LookupTableSigmoid) {
+			buffer.putShort(ACTIVATION_LOOKUP_TABLE);
+		} else if (activation instanceof RationalSigmoid) {
+			buffer.putShort(ACTIVATION_RATIONAL);
+		} else {
+			throw new IOException("Unsupported activation: " + activation);
+		}
+		buffer.putInt(network.getInNeurons());
+		buffer.putInt(network.getHiddenNeurons());
+		buffer.putInt(network.getOutNeurons());
+		buffer.putDouble(network.getEpsilon());
+		buffer.putDouble(network.getLearningRate());
+		if (activation instanceof LookupTableSigmoid) {
+			buffer.putInt(((LookupTableSigmoid) activation).getResolution());
+			buffer.putDouble(((LookupTableSigmoid) activation).getRange());
+		} else {
+			buffer.putInt(0);
+			buffer.putDouble(0);
+		}
+
+		buffer.asDoubleBuffer().put(weightsToHidden).put(weightsToOutput);
+		buffer.rewind();
+
+		FileOutputStream output = new FileOutputStream(file);
+		try {
+			FileChannel channel = output.getChannel();
+			while (buffer.hasRemaining()) {
+				channel.write(buffer);
+			}
+		} finally {
+			output.close();
+		}
+	}
+
+	/**
+	 * Loads a network.
+	 * 
+	 * @param file
+	 *            The file containing a saved network.
+	 * @return The network with the saved topology, hyperparameters,
+	 *         activation and weights.
+	 * @throws IOException
+	 *             If the file could not be read, is no network file or has an
+	 *             unsupported format version.
+	 */
+	public static FeedForwardNetwork load(File file) throws IOException {
+		RandomAccessFile input = new RandomAccessFile(file, "r");
+
+		try {
+			FileChannel channel = input.getChannel();
+			long size = channel.size();
+			if (size < HEADER_SIZE) {
+				throw new IOException("No network file: " + file);
+			}
+			ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0,
+					size);
+
+			if (buffer.getInt() != MAGIC) {
+				throw new IOException("No network file: " + file);
+			}
+			short version = buffer.getShort();
+			if (version != FORMAT_VERSION) {
+				throw new IOException("Unsupported format version " + version
+						+ ": " + file);
+			}
+			short activation = buffer.getShort();
+			int in = buffer.getInt();
+			int hidden = buffer.getInt();
+			int out = buffer.getInt();
+			double epsilon = buffer.getDouble();
+			double learningRate = buffer.getDouble();
+			int resolution = buffer.getInt();
+			double range = buffer.getDouble();
+
+			if ((in < 1) || (hidden < 1) || (out < 1)
+					|| (size != HEADER_SIZE + 8L
+							* ((long) hidden * (in + 1) + (long) out
+									* (hidden + 1)))) {
+				throw new IOException("Corrupt network file: " + file);
+			}
+
+			FeedForwardNetwork network = new FeedForwardNetwork(in, hidden,
+					out);
+			network.setEpsilon(epsilon);
+			network.setLearningRate(learningRate);
+			switch (activation) {
+			case ACTIVATION_EXACT:
+				network.setActivation(ExactSigmoid.INSTANCE);
+				break;
+			case ACTIVATION_LOOKUP_TABLE:
+				network.setActivation(new LookupTableSigmoid(resolution, range));
+				break;
+			case ACTIVATION_RATIONAL:
+				network.setActivation(RationalSigmoid.INSTANCE);
+				break;
+			default:
+				throw new IOException("Unsupported activation " + activation
+						+ ": " + file);
+			}
+
+			buffer.asDoubleBuffer().get(network.getWeightsToHidden())
+					.get(network.getWeightsToOutput());
+
+			return network;
+		} finally {
+			input.close();
+		}
+	}
+}
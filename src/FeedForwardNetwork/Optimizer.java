@@ -0,0 +1,61 @@
+package FeedForwardNetwork;
+
+/**
+ * An optimizer decides how a FeedForwardNetwork turns the descent direction
+ * of a training step into weight changes. Without an optimizer the network
+ * performs plain gradient descent: weight += learningRate * direction.
+ * 
+ * Optimizers may keep a fixed number of state values per weight, e.g. a
+ * velocity. The network allocates this state next to each weight array and
+ * passes it to update(), so an optimizer instance itself only holds its
+ * hyperparameters and step counter. An instance must not be shared by
+ * several networks.
+ */
+public abstract class Optimizer {
+
+	/**
+	 * Returns the number of state values the optimizer keeps per weight.
+	 */
+	public abstract int getStateSize();
+
+	/**
+	 * Called by the network once before each training step, i.e. before the
+	 * update() calls of one backpropagation or one applied gradient.
+	 */
+	public void step() {
+	}
+
+	/**
+	 * Called by the network when its weights are initialized, the network
+	 * resets the state arrays itself.
+	 */
+	public void reset() {
+	}
+
+	/**
+	 * Updates the weights weights[off .. off + n - 1]. The descent direction
+	 * of weight off + i is scale * x[xOff + i].
+	 * 
+	 * @param weights
+	 *            The weight array of the network.
+	 * @param state
+	 *            The state array belonging to the weight array, holding
+	 *            getStateSize() values per weight, interleaved.
+	 * @param off
+	 *            The index of the first weight to update.
+	 * @param x
+	 *            The activations (or accumulated changes) the direction is
+	 *            proportional to.
+	 * @param xOff
+	 *            The index of the first value of x.
+	 * @param scale
+	 *            The factor of the direction, e.g. the delta of the target
+	 *            neuron.
+	 * @param learningRate
+	 *            The learning rate of the network.
+	 * @param n
+	 *            The number of weights to update.
+	 */
+	public abstract void update(double[] weights, double[] state, int off,
+			double[] x, int xOff, double scale, double learningRate, int n);
+}
@@ -0,0 +1,315 @@
+package FeedForwardNetwork;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * This class teaches a FeedForwardNetwork on several threads at once. The
+ * training records are split into one contiguous shard per thread. Each
+ * thread works within its own NetworkContext.
+ * 
+ * In SYNCHRONOUS mode the records are processed in mini-batches. Every
+ * thread accumulates the gradient of its part of the batch against the
+ * unchanged weights, then the gradients are summed up and applied at once.
+ * The result does not depend on the number of threads apart from rounding.
+ * 
+ * In HOGWILD mode every thread performs backpropagation on its records and
+ * updates the shared weights directly without any locking. Lost or torn
+ * updates are accepted, they are rare and act like noise on the gradient.
+ * 
+ * Every worker is a long running task of the trainer's executor, which
+ * waits for the rounds of teachEpoch() on the trainer's monitor. A round
+ * therefore allocates nothing.
+ * 
+ * Interrupting the teaching thread stops the workers after their current
+ * record. teachEpoch() returns only when all workers have stopped, so the
+ * weights are not changed afterwards.
+ * 
+ * A trainer must be shut down by shutdown() when it is not needed any more.
+ */
+public class ParallelTrainer {
+	public enum Mode {
+		SYNCHRONOUS, HOGWILD
+	}
+
+	public static final int DEFAULT_BATCH_SIZE = 64;
+
+	private final FeedForwardNetwork network;
+	private final Mode mode;
+	private final ExecutorService executor;
+	private final List<Worker> workers;
+	private final Gradient gradient;
+
+	private int batchSize = DEFAULT_BATCH_SIZE;
+
+	// Set to stop the workers of the current run
+	private volatile boolean cancelled;
+
+	// The coordination of the rounds, guarded by this trainer: a round is
+	// started by incrementing round and ends when pending drops to 0
+	private int round;
+	private int pending;
+	private boolean stopped;
+	private Throwable failure;
+
+	/**
+	 * Creates a new trainer.
+	 * 
+	 * @param network
+	 *            The network to teach.
+	 * @param numOfThreads
+	 *            The number of threads teaching the network. [0<threads]
+	 * @param mode
+	 *            How the threads update the weights of the network.
+	 */
+	public ParallelTrainer(FeedForwardNetwork network, int numOfThreads,
+			Mode mode) {
+		if (numOfThreads < 1) {
+			numOfThreads = 1;
+		}
+
+		this.network = network;
+		this.mode = mode;
+		this.executor = Executors.newFixedThreadPool(numOfThreads);
+		this.gradient = network.createGradient();
+
+		workers = new ArrayList<Worker>(numOfThreads);
+		for (int i = 0; i < numOfThreads; i++) {
+			Worker worker = new Worker();
+			workers.add(worker);
+			executor.execute(worker);
+		}
+	}
+
+	/**
+	 * Sets the number of training records per weight update in SYNCHRONOUS
+	 * mode.
+	 * 
+	 * @param batchSize
+	 *            The number of training records per weight update.
+	 *            [0<batch size]
+	 */
+	public void setBatchSize(int batchSize) {
+		if (batchSize > 0) {
+			this.batchSize = batchSize;
+		}
+	}
+
+	public int getNumOfThreads() {
+		return workers.size();
+	}
+
+	public Mode getMode() {
+		return mode;
+	}
+
+	/**
+	 * Teaches the network one epoch, i.e. every training record once. If the
+	 * calling thread is interrupted, the epoch ends early and the interrupt
+	 * flag stays set; the gradient of an unfinished batch is not applied.
+	 * 
+	 * @param records
+	 *            The training records, read in place by all threads.
+	 */
+	public void teachEpoch(TrainingSet records) {
+		int numOfRecords = records.size();
+
+		if (mode == Mode.HOGWILD) {
+			if (!Thread.currentThread().isInterrupted()) {
+				run(records, 0, numOfRecords);
+			}
+		} else {
+			for (int start = 0; start < numOfRecords; start += batchSize) {
+				if (Thread.currentThread().isInterrupted()) {
+					return;
+				}
+
+				run(records, start, Math.min(start + batchSize, numOfRecords));
+
+				// The workers stopped within the batch
+				if (Thread.currentThread().isInterrupted()) {
+					return;
+				}
+
+				// indexed, as an iterator would be allocated per batch
+				gradient.clear();
+				for (int i = 0; i < workers.size(); i++) {
+					gradient.add(workers.get(i).gradient);
+				}
+				network.applyGradient(gradient);
+			}
+		}
+	}
+
+	public void shutdown() {
+		synchronized (this) {
+			stopped = true;
+			notifyAll();
+		}
+		executor.shutdown();
+	}
+
+	/**
+	 * Measures how teaching scales with the number of threads. For every
+	 * number of threads from 1 to maxThreads a copy of the network is taught
+	 * the given number of epochs, starting from the same weights.
+	 * 
+	 * @return The wall-clock time in nanoseconds, indexed by the number of
+	 *         threads minus one.
+	 */
+	public static long[] measureScaling(FeedForwardNetwork network,
+			TrainingSet records, int epochs, int maxThreads, Mode mode) {
+		int numOfIn = network.getInNeurons();
+		int numOfHidden = network.getHiddenNeurons();
+		int numOfOut = network.getOutNeurons();
+		double[][] w1 = new double[numOfIn + 1][numOfHidden];
+		double[][] w2 = new double[numOfHidden + 1][numOfOut];
+		long[] times = new long[maxThreads];
+
+		network.getWeights(w1, w2);
+
+		for (int threads = 1; threads <= maxThreads; threads++) {
+			FeedForwardNetwork copy = new FeedForwardNetwork(numOfIn,
+					numOfHidden, numOfOut);
+			copy.setWeights(w1, w2);
+			copy.setEpsilon(network.getEpsilon());
+			copy.setLearningRate(network.getLearningRate());
+			copy.setActivation(network.getActivation());
+
+			ParallelTrainer trainer = new ParallelTrainer(copy, threads, mode);
+			long start = System.nanoTime();
+			for (int i = 0; i < epochs; i++) {
+				trainer.teachEpoch(records);
+			}
+			times[threads - 1] = System.nanoTime() - start;
+			trainer.shutdown();
+		}
+
+		return times;
+	}
+
+	/**
+	 * Runs all workers on their shards of the records from start to end and
+	 * waits until all of them are done. An interrupt or a failing worker
+	 * stops the other workers, but the method still waits until every one of
+	 * them has returned.
+	 */
+	private void run(TrainingSet records, int start, int end) {
+		int numOfWorkers = workers.size();
+		int length = end - start;
+
+		for (int i = 0; i < numOfWorkers; i++) {
+			Worker worker = workers.get(i);
+			worker.features = records.getFeatures();
+			worker.targets = records.getTargets();
+			worker.start = start + length * i / numOfWorkers;
+			worker.end = start + length * (i + 1) / numOfWorkers;
+		}
+
+		boolean interrupted = false;
+		Throwable error;
+
+		synchronized (this) {
+			cancelled = false;
+			failure = null;
+			pending = numOfWorkers;
+			round++;
+			notifyAll();
+
+			while (pending > 0) {
+				try {
+					wait();
+				} catch (InterruptedException e) {
+					interrupted = true;
+					cancelled = true;
+				}
+			}
+			error = failure;
+		}
+
+		if (interrupted) {
+			Thread.currentThread().interrupt();
+		}
+		if (error != null) {
+			throw new RuntimeException(error);
+		}
+	}
+
+	/**
+	 * Teaches the network on one shard of the training records in every
+	 * round, until the trainer is shut down.
+	 */
+	private class Worker implements Runnable {
+		private final NetworkContext context = network.createContext();
+		private final Gradient gradient = network.createGradient();
+
+		private double[] features;
+		private double[] targets;
+		private int start;
+		private int end;
+
+		public void run() {
+			int seen = 0;
+
+			while (true) {
+				synchronized (ParallelTrainer.this) {
+					while ((round == seen) && !stopped) {
+						try {
+							ParallelTrainer.this.wait();
+						} catch (InterruptedException e) {
+							// the executor is shut down
+							return;
+						}
+					}
+					if (stopped) {
+						return;
+					}
+					seen = round;
+				}
+
+				Throwable error = null;
+				try {
+					teach();
+				} catch (Throwable t) {
+					error = t;
+				}
+
+				synchronized (ParallelTrainer.this) {
+					if ((error != null) && (failure == null)) {
+						failure = error;
+						cancelled = true;
+					}
+					if (--pending == 0) {
+						ParallelTrainer.this.notifyAll();
+					}
+				}
+			}
+		}
+
+		private void teach() {
+			int numOfIn = network.getInNeurons();
+			int numOfOut = network.getOutNeurons();
+
+			gradient.clear();
+
+			for (int i = start; i < end; i++) {
+				if (cancelled || Thread.interrupted()) {
+					break;
+				}
+
+				context.setInputs(features, i * numOfIn);
+
+				network.apply(context);
+
+				if (mode == Mode.HOGWILD) {
+					network.backpropagate(targets, i * numOfOut, context);
+				} else {
+					network.accumulateGradient(targets, i * numOfOut, context,
+							gradient);
+				}
+			}
+		}
+	}
+}
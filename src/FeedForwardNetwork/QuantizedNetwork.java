@@ -0,0 +1,168 @@
+package FeedForwardNetwork;
+
+/**
+ * An int8 copy of a taught FeedForwardNetwork for inference. Every layer's
+ * weights are scaled by a single factor so that the largest absolute weight
+ * becomes 127 and rounded to bytes. The activations are quantized as well:
+ * the inputs to multiples of 1/INPUT_LEVELS, which represents inputs in steps
+ * of 0.2 or 0.25 exactly, the hidden activations to multiples of
+ * 1/HIDDEN_LEVELS. The net input of a neuron is then an integer dot
+ * product, scaled back to double only for the transfer function.
+ * 
+ * The weights take an eighth of the memory of the double network. The
+ * network is not changed by teaching the source network afterwards.
+ */
+public class QuantizedNetwork {
+	public static final int INPUT_LEVELS = 120;
+	public static final int HIDDEN_LEVELS = 127;
+
+	private static final int MAX_WEIGHT = 127;
+
+	private final int inNeurons;
+	private final int hiddenNeurons;
+	private final int outNeurons;
+
+	// same row-major layout as in FeedForwardNetwork, threshold weight last
+	private final byte[] weightsToHidden;
+	private final byte[] weightsToOutput;
+
+	// the value of one step of a quantized weight
+	private final double scaleToHidden;
+	private final double scaleToOutput;
+
+	private final Activation activation;
+
+	// the quantized activations used by apply()
+	private final int[] inputBuffer;
+	private final int[] hiddenBuffer;
+
+	/**
+	 * Quantizes the current weights of a network.
+	 * 
+	 * @param network
+	 *            The network to quantize.
+	 */
+	public QuantizedNetwork(FeedForwardNetwork network) {
+		inNeurons = network.getInNeurons();
+		hiddenNeurons = network.getHiddenNeurons();
+		outNeurons = network.getOutNeurons();
+		activation = network.getActivation();
+
+		double[] source = network.getWeightsToHidden();
+		scaleToHidden = getScale(source);
+		weightsToHidden = quantize(source, scaleToHidden);
+
+		source = network.getWeightsToOutput();
+		scaleToOutput = getScale(source);
+		weightsToOutput = quantize(source, scaleToOutput);
+
+		inputBuffer = new int[inNeurons + 1];
+		hiddenBuffer = new int[hiddenNeurons + 1];
+	}
+
+	/**
+	 * Applies the network to one input vector. Not thread-safe, concurrent
+	 * callers use applyBatch().
+	 * 
+	 * @param in
+	 *            The array holding the input vector. [0<=input<=1]
+	 * @param offset
+	 *            The index of the first input.
+	 * @param out
+	 *            The array the outputs are written to.
+	 */
+	public void apply(double[] in, int offset, double[] out) {
+		apply(in, offset, out, inputBuffer, hiddenBuffer);
+	}
+
+	/**
+	 * Applies the network to a batch of input vectors. May be called by
+	 * several threads at once.
+	 * 
+	 * @param in
+	 *            The input vectors. [0<=input<=1]
+	 * @param out
+	 *            The arrays the outputs are written to.
+	 */
+	public void applyBatch(double[][] in, double[][] out) {
+		int[] input = new int[inNeurons + 1];
+		int[] hidden = new int[hiddenNeurons + 1];
+
+		for (int s = 0; s < in.length; s++) {
+			apply(in[s], 0, out[s], input, hidden);
+		}
+	}
+
+	private void apply(double[] in, int offset, double[] out, int[] input,
+			int[] hidden) {
+		int i, j, row, net;
+
+		for (i = 0; i < inNeurons; i++) {
+			input[i] = (int) Math.round(in[offset + i] * INPUT_LEVELS);
+		}
+		input[inNeurons] = INPUT_LEVELS; // for threshold computation
+
+		double scale = scaleToHidden / INPUT_LEVELS;
+		for (j = 0, row = 0; j < hiddenNeurons; j++, row += inNeurons + 1) {
+			net = 0;
+			for (i = 0; i < inNeurons + 1; i++) {
+				net += weightsToHidden[row + i] * input[i];
+			}
+			hidden[j] = (int) Math.round(activation.t(net * scale)
+					* HIDDEN_LEVELS);
+		}
+		hidden[hiddenNeurons] = HIDDEN_LEVELS;
+
+		scale = scaleToOutput / HIDDEN_LEVELS;
+		for (j = 0, row = 0; j < outNeurons; j++, row += hiddenNeurons + 1) {
+			net = 0;
+			for (i = 0; i < hiddenNeurons + 1; i++) {
+				net += weightsToOutput[row + i] * hidden[i];
+			}
+			out[j] = activation.t(net * scale);
+		}
+	}
+
+	public int getInNeurons() {
+		return inNeurons;
+	}
+
+	public int getHiddenNeurons() {
+		return hiddenNeurons;
+	}
+
+	public int getOutNeurons() {
+		return outNeurons;
+	}
+
+	public double getScaleToHidden() {
+		return scaleToHidden;
+	}
+
+	public double getScaleToOutput() {
+		return scaleToOutput;
+	}
+
+	/**
+	 * Returns the memory taken by the weights and scales in bytes.
+	 */
+	public int getSizeInBytes() {
+		return weightsToHidden.length + weightsToOutput.length + 2 * 8;
+	}
+
+	private static double getScale(double[] weights) {
+		double max = 0;
+		for (int i = 0; i < weights.length; i++) {
+			max = Math.max(max, Math.abs(weights[i]));
+		}
+		return max > 0 ? max / MAX_WEIGHT : 1;
+	}
+
+	private static byte[] quantize(double[] weights, double scale) {
+		byte[] quantized = new byte[weights.length];
+		for (int i = 0; i < weights.length; i++) {
+			quantized[i] = (byte) Math.round(weights[i] / scale);
+		}
+		return quantized;
+	}
+}
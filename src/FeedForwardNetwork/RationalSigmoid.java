@@ -0,0 +1,49 @@
+package FeedForwardNetwork;
+
+/**
+ * The logistic function computed by a rational approximation without
+ * Math.exp(). It uses 1 / (1 + e^-x) = 0.5 + 0.5 * tanh(x / 2) and the (7,6)
+ * Pade approximant of tanh. Beyond |x| = SATURATION the activation is
+ * saturated to 0 and 1.
+ * 
+ * The maximum error is below 5E-5, it is reached just before the saturation.
+ */
+public class RationalSigmoid implements FloatActivation {
+
+	public static final RationalSigmoid INSTANCE = new RationalSigmoid();
+
+	// the approximant of tanh reaches 1 at z = 4.9718
+	public static final double SATURATION = 2 * 4.97;
+
+	public double t(double x) {
+		if (x >= SATURATION) {
+			return 1;
+		}
+		if (x <= -SATURATION) {
+			return 0;
+		}
+
+		double z = 0.5 * x;
+		double z2 = z * z;
+		double tanh = z * (135135 + z2 * (17325 + z2 * (378 + z2)))
+				/ (135135 + z2 * (62370 + z2 * (3150 + z2 * 28)));
+
+		return 0.5 + 0.5 * tanh;
+	}
+
+	public float t(float x) {
+		if (x >= SATURATION) {
+			return 1;
+		}
+		if (x <= -SATURATION) {
+			return 0;
+		}
+
+		float z = 0.5f * x;
+		float z2 = z * z;
+		float tanh = z * (135135 + z2 * (17325 + z2 * (378 + z2)))
+				/ (135135 + z2 * (62370 + z2 * (3150 + z2 * 28)));
+
+		return 0.5f + 0.5f * tanh;
+	}
+}
@@ -0,0 +1,163 @@
+package FeedForwardNetwork;
+
+/**
+ * This class stores training records in two contiguous primitive arrays: one
+ * row-major matrix of the features (the input values) and one of the targets
+ * (the teaching values). Records are only appended, the arrays grow by
+ * doubling.
+ * 
+ * Trainers read the records straight from the arrays returned by
+ * getFeatures() and getTargets(): record i starts at index i *
+ * getNumOfFeatures() and i * getNumOfTargets() respectively.
+ */
+public class TrainingSet {
+	private static final int DEFAULT_CAPACITY = 64;
+
+	private final int numOfFeatures;
+	private final int numOfTargets;
+
+	private double[] features;
+	private double[] targets;
+	private int size;
+
+	public TrainingSet(int numOfFeatures, int numOfTargets) {
+		this(numOfFeatures, numOfTargets, DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * Creates a new empty training set.
+	 * 
+	 * @param numOfFeatures
+	 *            The number of input values per record. [0<features]
+	 * @param numOfTargets
+	 *            The number of teaching values per record. [0<targets]
+	 * @param capacity
+	 *            The number of records the set can hold before it grows.
+	 *            [0<=capacity]
+	 */
+	public TrainingSet(int numOfFeatures, int numOfTargets, int capacity) {
+		this.numOfFeatures = numOfFeatures > 0 ? numOfFeatures : 1;
+		this.numOfTargets = numOfTargets > 0 ? numOfTargets : 1;
+		if (capacity < 0) {
+			capacity = DEFAULT_CAPACITY;
+		}
+
+		features = new double[capacity * this.numOfFeatures];
+		targets = new double[capacity * this.numOfTargets];
+	}
+
+	/**
+	 * Appends a record with all values set to 0.
+	 * 
+	 * @return The index of the new record.
+	 */
+	public int add() {
+		ensureCapacity(size + 1);
+		int record = size++;
+
+		for (int i = 0; i < numOfFeatures; i++)
+			features[record * numOfFeatures + i] = 0;
+		for (int i = 0; i < numOfTargets; i++)
+			targets[record * numOfTargets + i] = 0;
+
+		return record;
+	}
+
+	/**
+	 * Appends a copy of a record of another training set with the same
+	 * number of features and targets.
+	 * 
+	 * @return The index of the new record.
+	 */
+	public int add(TrainingSet other, int record) {
+		ensureCapacity(size + 1);
+		System.arraycopy(other.features, record * numOfFeatures, features,
+				size * numOfFeatures, numOfFeatures);
+		System.arraycopy(other.targets, record * numOfTargets, targets, size
+				* numOfTargets, numOfTargets);
+		return size++;
+	}
+
+	/**
+	 * Appends copies of all records of another training set with the same
+	 * number of features and targets.
+	 */
+	public void addAll(TrainingSet other) {
+		ensureCapacity(size + other.size);
+		System.arraycopy(other.features, 0, features, size * numOfFeatures,
+				other.size * numOfFeatures);
+		System.arraycopy(other.targets, 0, targets, size * numOfTargets,
+				other.size * numOfTargets);
+		size += other.size;
+	}
+
+	/**
+	 * Removes all records, the capacity is kept.
+	 */
+	public void clear() {
+		size = 0;
+	}
+
+	/**
+	 * Makes sure the set can hold the given number of records without
+	 * growing again.
+	 */
+	public void ensureCapacity(int capacity) {
+		int current = features.length / numOfFeatures;
+		if (current >= capacity) {
+			return;
+		}
+		capacity = Math.max(capacity, 2 * current);
+
+		double[] newFeatures = new double[capacity * numOfFeatures];
+		double[] newTargets = new double[capacity * numOfTargets];
+		System.arraycopy(features, 0, newFeatures, 0, size * numOfFeatures);
+		System.arraycopy(targets, 0, newTargets, 0, size * numOfTargets);
+		features = newFeatures;
+		targets = newTargets;
+	}
+
+	public void setFeature(int record, int x, double value) {
+		features[record * numOfFeatures + x] = value;
+	}
+
+	public void setTarget(int record, int x, double value) {
+		targets[record * numOfTargets + x] = value;
+	}
+
+	public double getFeature(int record, int x) {
+		return features[record * numOfFeatures + x];
+	}
+
+	public double getTarget(int record, int x) {
+		return targets[record * numOfTargets + x];
+	}
+
+	/**
+	 * Returns the feature matrix. The array is replaced when the set grows,
+	 * so it must be fetched again after records were added.
+	 */
+	public double[] getFeatures() {
+		return features;
+	}
+
+	/**
+	 * Returns the target matrix. The array is replaced when the set grows,
+	 * so it must be fetched again after records were added.
+	 */
+	public double[] getTargets() {
+		return targets;
+	}
+
+	public int getNumOfFeatures() {
+		return numOfFeatures;
+	}
+
+	public int getNumOfTargets() {
+		return numOfTargets;
+	}
+
+	public int size() {
+		return size;
+	}
+}
@@ -0,0 +1,240 @@
+package GoalKeeperCheatSheet;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+import FeedForwardNetwork.TrainingSet;
+
+/**
+ * This class reads and writes PenaltyShots in a packed binary format, which
+ * loads far faster than the csv format and takes about a thirtieth of its
+ * size. Every shot is stored as its PenaltyShotEncoding code in two bytes.
+ * 
+ * The layout of the file (big-endian) is:
+ * 
+ * <pre>
+ * int    MAGIC
+ * short  SCHEMA_VERSION
+ * short  RECORD_SIZE
+ * int    number of records
+ * short  code of each record
+ * </pre>
+ */
+public class BinaryTrainingData {
+	public static final String FILE_EXTENSION = ".gkts";
+	public static final int MAGIC = 0x474B5453; // "GKTS"
+	public static final short SCHEMA_VERSION = 1;
+	public static final short RECORD_SIZE = 2;
+	public static final int HEADER_SIZE = 12;
+
+	private static final int COUNT_POSITION = 8;
+
+	/**
+	 * Converts a csv file into the binary format.
+	 * 
+	 * @param csvFile
+	 *            the file containing PenaltyShots formatted in csv
+	 * @param binaryFile
+	 *            the file the binary records are written to
+	 * @return the number of converted records
+	 * @throws IOException
+	 *             If a file could not be read or written
+	 */
+	public static int convert(File csvFile, File binaryFile)
+			throws IOException {
+		final DataOutputStream output = new DataOutputStream(
+				new BufferedOutputStream(new FileOutputStream(binaryFile)));
+		final int[] numOfRecords = new int[1];
+
+		try {
+			writeHeader(output, 0);
+			new PenaltyShotParser(new PenaltyShotParser.Consumer() {
+				public void accept(double[] features, double[] targets) {
+					int code = PenaltyShotEncoding.encode(features, 0,
+							targets, 0);
+					if (code < 0) {
+						return;
+					}
+					try {
+						output.writeShort(code);
+					} catch (IOException e) {
+						throw new RuntimeException(e);
+					}
+					numOfRecords[0]++;
+				}
+			}).parse(csvFile);
+		} catch (RuntimeException e) {
+			if (e.getCause() instanceof IOException) {
+				throw (IOException) e.getCause();
+			}
+			throw e;
+		} finally {
+			output.close();
+		}
+
+		// The number of records is known only now
+		RandomAccessFile file = new RandomAccessFile(binaryFile, "rw");
+		try {
+			file.seek(COUNT_POSITION);
+			file.writeInt(numOfRecords[0]);
+		} finally {
+			file.close();
+		}
+
+		return numOfRecords[0];
+	}
+
+	/**
+	 * Writes a set of training records in the binary format. Records that do
+	 * not hold normalized levels are skipped.
+	 * 
+	 * @param records
+	 *            the training records with the layout of the
+	 *            GoalKeeperCheatSheetNeuronalNetwork's input and teaching
+	 *            vectors
+	 * @param binaryFile
+	 *            the file the binary records are written to
+	 * @return the number of written records
+	 * @throws IOException
+	 *             If the file could not be written
+	 */
+	public static int write(TrainingSet records, File binaryFile)
+			throws IOException {
+		double[] features = records.getFeatures();
+		double[] targets = records.getTargets();
+		int numOfFeatures = records.getNumOfFeatures();
+		int numOfTargets = records.getNumOfTargets();
+		int[] codes = new int[records.size()];
+		int numOfRecords = 0;
+
+		for (int i = 0; i < records.size(); i++) {
+			int code = PenaltyShotEncoding.encode(features, i * numOfFeatures,
+					targets, i * numOfTargets);
+			if (code >= 0) {
+				codes[numOfRecords++] = code;
+			}
+		}
+
+		DataOutputStream output = new DataOutputStream(
+				new BufferedOutputStream(new FileOutputStream(binaryFile)));
+		try {
+			writeHeader(output, numOfRecords);
+			for (int i = 0; i < numOfRecords; i++) {
+				output.writeShort(codes[i]);
+			}
+		} finally {
+			output.close();
+		}
+
+		return numOfRecords;
+	}
+
+	/**
+	 * Loads a binary file and appends its records to a set of training
+	 * records. The file is memory-mapped and the records are decoded straight
+	 * into the arrays of the training set.
+	 * 
+	 * @param binaryFile
+	 *            the file containing binary records
+	 * @param records
+	 *            the training set the records are appended to, e.g. created
+	 *            by GoalKeeperCheatSheetNeuronalNetwork.createTrainingSet()
+	 * @return the number of appended records
+	 * @throws IOException
+	 *             If the file could not be read, is no binary training data
+	 *             file, has an unsupported schema version or an invalid
+	 *             record. No records are appended then.
+	 */
+	public static int load(File binaryFile, TrainingSet records)
+			throws IOException {
+		RandomAccessFile input = new RandomAccessFile(binaryFile, "r");
+		long startTime = System.nanoTime();
+
+		try {
+			FileChannel channel = input.getChannel();
+			ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0,
+					channel.size());
+			int numOfRecords = readHeader(buffer, binaryFile);
+
+			// Check all codes first, so an invalid file appends nothing
+			for (int i = 0; i < numOfRecords; i++) {
+				int code = buffer.getShort(HEADER_SIZE + i * RECORD_SIZE)
+						& 0xFFFF;
+				if (code >= PenaltyShotEncoding.NUM_OF_CODES) {
+					throw new IOException("Invalid record " + i + " in "
+							+ binaryFile);
+				}
+			}
+
+			int start = records.size();
+			records.ensureCapacity(start + numOfRecords);
+			for (int i = 0; i < numOfRecords; i++) {
+				records.add();
+			}
+
+			double[] features = records.getFeatures();
+			double[] targets = records.getTargets();
+			int numOfFeatures = records.getNumOfFeatures();
+			int numOfTargets = records.getNumOfTargets();
+			for (int i = 0; i < numOfRecords; i++) {
+				int code = buffer.getShort(HEADER_SIZE + i * RECORD_SIZE)
+						& 0xFFFF;
+				PenaltyShotEncoding.decode(code, features, (start + i)
+						* numOfFeatures, targets, (start + i) * numOfTargets);
+			}
+
+			Trace.Sink trace = Trace.getSink();
+			if (trace != null) {
+				trace.importFinished(binaryFile.getPath(), numOfRecords,
+						channel.size(), 0, System.nanoTime() - startTime);
+			}
+			return numOfRecords;
+		} finally {
+			input.close();
+		}
+	}
+
+	private static void writeHeader(DataOutputStream output, int numOfRecords)
+			throws IOException {
+		output.writeInt(MAGIC);
+		output.writeShort(SCHEMA_VERSION);
+		output.writeShort(RECORD_SIZE);
+		output.writeInt(numOfRecords);
+	}
+
+	/**
+	 * Checks the header of a binary file.
+	 * 
+	 * @return The number of records.
+	 */
+	private static int readHeader(ByteBuffer buffer, File binaryFile)
+			throws IOException {
+		if ((buffer.limit() < HEADER_SIZE) || (buffer.getInt(0) != MAGIC)) {
+			throw new IOException("No binary training data file: "
+					+ binaryFile);
+		}
+		if (buffer.getShort(4) != SCHEMA_VERSION) {
+			throw new IOException("Unsupported schema version "
+					+ buffer.getShort(4) + ": " + binaryFile);
+		}
+		if (buffer.getShort(6) != RECORD_SIZE) {
+			throw new IOException("Unsupported record size "
+					+ buffer.getShort(6) + ": " + binaryFile);
+		}
+
+		int numOfRecords = buffer.getInt(COUNT_POSITION);
+		if ((numOfRecords < 0)
+				|| (buffer.limit() < HEADER_SIZE + (long) numOfRecords
+						* RECORD_SIZE)) {
+			throw new IOException("Truncated binary training data file: "
+					+ binaryFile);
+		}
+		return numOfRecords;
+	}
+}
@@ -0,0 +1,101 @@
+package GoalKeeperCheatSheet;
+
+/**
+ * This class is a data object class containing the metrics of a single epoch
+ * of a teaching run, measured on all training records after the epoch.
+ */
+public class EpochMetrics {
+	private final int epoch;
+	private final int numOfRecords;
+	private final int correctItems;
+	private final double totalError;
+	private final double minError;
+	private final double maxError;
+	private final long epochTime;
+
+	/**
+	 * Creates new metrics.
+	 * 
+	 * @param epoch
+	 *            The number of the epoch, starting with 1.
+	 * @param numOfRecords
+	 *            The number of training records.
+	 * @param correctItems
+	 *            The number of correctly classified records.
+	 * @param totalError
+	 *            The sum of the errors of all records.
+	 * @param minError
+	 *            The smallest error of a record.
+	 * @param maxError
+	 *            The largest error of a record.
+	 * @param epochTime
+	 *            The time taken by the epoch, including the measurement of
+	 *            the errors, in nanoseconds.
+	 */
+	public EpochMetrics(int epoch, int numOfRecords, int correctItems,
+			double totalError, double minError, double maxError,
+			long epochTime) {
+		this.epoch = epoch;
+		this.numOfRecords = numOfRecords;
+		this.correctItems = correctItems;
+		this.totalError = totalError;
+		this.minError = minError;
+		this.maxError = maxError;
+		this.epochTime = epochTime;
+	}
+
+	public int getEpoch() {
+		return epoch;
+	}
+
+	public int getNumOfRecords() {
+		return numOfRecords;
+	}
+
+	public int getCorrectItems() {
+		return correctItems;
+	}
+
+	/**
+	 * Returns the loss, i.e. the sum of the errors of all records.
+	 */
+	public double getTotalError() {
+		return totalError;
+	}
+
+	public double getMinError() {
+		return minError;
+	}
+
+	public double getAvgError() {
+		return numOfRecords > 0 ? totalError / numOfRecords : 0.0;
+	}
+
+	public double getMaxError() {
+		return maxError;
+	}
+
+	/**
+	 * Returns the time taken by the epoch in nanoseconds.
+	 */
+	public long getEpochTime() {
+		return epochTime;
+	}
+
+	/**
+	 * Returns the number of training records taught per second.
+	 */
+	public double getSamplesPerSecond() {
+		return epochTime > 0 ? numOfRecords * 1E9 / epochTime : 0.0;
+	}
+
+	@Override
+	public String toString() {
+		return "EpochMetrics [epoch=" + epoch + ", numOfRecords="
+				+ numOfRecords + ", correctItems=" + correctItems
+				+ ", totalError=" + totalError + ", minError=" + minError
+				+ ", avgError=" + getAvgError() + ", maxError=" + maxError
+				+ ", epochTime=" + epochTime + ", samplesPerSecond="
+				+ getSamplesPerSecond() + "]";
+	}
+}
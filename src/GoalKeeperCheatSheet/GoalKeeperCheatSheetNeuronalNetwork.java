@@ -1,26 +1,80 @@
 package GoalKeeperCheatSheet;
 
+import java.io.File;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
 
+import FeedForwardNetwork.Activation;
 import FeedForwardNetwork.FeedForwardNetwork;
+import FeedForwardNetwork.Gradient;
+import FeedForwardNetwork.NetworkContext;
+import FeedForwardNetwork.NetworkFile;
+import FeedForwardNetwork.Optimizer;
+import FeedForwardNetwork.ParallelTrainer;
+import FeedForwardNetwork.QuantizedNetwork;
+import FeedForwardNetwork.TrainingSet;
 
 /**
  * This class represents a NeuronalNetwork for a GoalKeeperCheatSheet. It can be
  * taught and asks afterwards to predict new PenaltyShots.
  * 
+ * Once taught, the network may be asked from any number of threads at once.
+ * Every thread applies the network within its own NetworkContext, so asking
+ * needs no locking. Teaching must not run concurrently to asking.
  */
 public class GoalKeeperCheatSheetNeuronalNetwork {
 	public static final int NUM_OF_INPUT_NODES = 8;
 	public static final int NUM_OF_OUTPUT_NODES = 2;
-	private static final int ITERATIONS_INTERVALL_FOR_PRINTOUT = 1000;
-	private static final int NUM_OF_MAXIMUM_ITERATIONS = 5000;
+	public static final int DEFAULT_BATCH_SIZE = 1;
+	public static final int DEFAULT_REPLAY_BUFFER_SIZE = 256;
+
+	// The String representations of all targets, indexed by
+	// (x-coordinate * 2 + y-coordinate)
+	private static final String[] TARGETS = { "linksUnten", "linksOben",
+			"mitteUnten", "mitteOben", "rechtsUnten", "rechtsOben" };
 
 	private int numOfHiddenNodes;
 	private double epsilon;
 	private double learningRate;
-	private FeedForwardNetwork NN;
-	private List<PenaltyShot> learnedShots;
+	private int batchSize = DEFAULT_BATCH_SIZE;
+	private final FeedForwardNetwork NN;
+	private final Gradient gradient;
+	private ParallelTrainer trainer;
+	private TrainingSchedule schedule = new TrainingSchedule();
+	private final ThreadLocal<NetworkContext> contexts;
+	private final List<TrainingListener> listeners =
+			new CopyOnWriteArrayList<TrainingListener>();
+
+	// Set while a TrainingJob teaches the network
+	private final AtomicBoolean jobRunning = new AtomicBoolean();
+
+	// The training records of all learned shots. They only grow when new
+	// shots are taught and are reused by every teaching run.
+	private final TrainingSet learnedShots = createTrainingSet();
+
+	// The new and replayed records of an incremental teaching run
+	private final TrainingSet incrementalShots = createTrainingSet();
+
+	// A uniform sample of the indices of all learned shots, replayed by
+	// incremental teaching runs (reservoir sampling)
+	private int[] replayBuffer = new int[DEFAULT_REPLAY_BUFFER_SIZE];
+	private int replayBufferCount;
+	private final Random random = new Random();
+
+	// The answers for all combinations of input parameters, recomputed when
+	// the weights have changed
+	private volatile PredictionTable predictionTable;
+
+	// The output holder reused by every teaching run
+	private double[] output = new double[NUM_OF_OUTPUT_NODES];
+
+	// The best weights found by the current teaching run
+	private final double[][] bestWeightsToHidden;
+	private final double[][] bestWeightsToOutput;
 
 	/**
 	 * Creates a new network.
@@ -36,19 +90,81 @@ public class GoalKeeperCheatSheetNeuronalNetwork {
 	 */
 	public GoalKeeperCheatSheetNeuronalNetwork(int numOfHiddenNodes,
 			double epsilon, double learningRate) {
-		this.numOfHiddenNodes = numOfHiddenNodes;
-		this.epsilon = epsilon;
-		this.learningRate = learningRate;
+		this(createNetwork(numOfHiddenNodes, epsilon, learningRate));
+	}
 
-		NN = new FeedForwardNetwork(NUM_OF_INPUT_NODES, this.numOfHiddenNodes,
-				NUM_OF_OUTPUT_NODES);
-		NN.init();
-		NN.setEpsilon(this.epsilon);
-		NN.setLearningRate(this.learningRate);
+	/**
+	 * Creates a network working with the given, possibly already taught,
+	 * FeedForwardNetwork.
+	 * 
+	 * @param network
+	 *            A network with NUM_OF_INPUT_NODES input and
+	 *            NUM_OF_OUTPUT_NODES output neurons.
+	 */
+	private GoalKeeperCheatSheetNeuronalNetwork(FeedForwardNetwork network) {
+		this.NN = network;
+		this.numOfHiddenNodes = NN.getHiddenNeurons();
+		this.epsilon = NN.getEpsilon();
+		this.learningRate = NN.getLearningRate();
 
-		learnedShots = new ArrayList<PenaltyShot>();
+		gradient = NN.createGradient();
+		bestWeightsToHidden = new double[NUM_OF_INPUT_NODES + 1][NN
+				.getHiddenNeurons()];
+		bestWeightsToOutput = new double[NN.getHiddenNeurons() + 1]
+				[NUM_OF_OUTPUT_NODES];
+
+		contexts = new ThreadLocal<NetworkContext>() {
+			@Override
+			protected NetworkContext initialValue() {
+				return NN.createContext();
+			}
+		};
 	}
 	
+	/**
+	 * Loads a network saved by save(). It can be asked at once, without
+	 * teaching it again.
+	 * 
+	 * @param file
+	 *            The file containing the saved network.
+	 * @return The loaded network.
+	 * @throws IOException
+	 *             If the file could not be read or contains no network for a
+	 *             GoalKeeperCheatSheet.
+	 */
+	public static GoalKeeperCheatSheetNeuronalNetwork load(File file)
+			throws IOException {
+		FeedForwardNetwork NN = NetworkFile.load(file);
+		if ((NN.getInNeurons() != NUM_OF_INPUT_NODES)
+				|| (NN.getOutNeurons() != NUM_OF_OUTPUT_NODES)) {
+			throw new IOException("No GoalKeeperCheatSheet network: " + file);
+		}
+		return new GoalKeeperCheatSheetNeuronalNetwork(NN);
+	}
+
+	/**
+	 * Saves the network's topology, hyperparameters, activation and weights,
+	 * see NetworkFile. The learned shots are not saved.
+	 * 
+	 * @param file
+	 *            The file the network is written to.
+	 * @throws IOException
+	 *             If the file could not be written.
+	 */
+	public void save(File file) throws IOException {
+		NetworkFile.save(NN, file);
+	}
+
+	private static FeedForwardNetwork createNetwork(int numOfHiddenNodes,
+			double epsilon, double learningRate) {
+		FeedForwardNetwork NN = new FeedForwardNetwork(NUM_OF_INPUT_NODES,
+				numOfHiddenNodes, NUM_OF_OUTPUT_NODES);
+		NN.init();
+		NN.setEpsilon(epsilon);
+		NN.setLearningRate(learningRate);
+		return NN;
+	}
+
 	public void setEpsilon(double epsilon) {
 		this.NN.setEpsilon(epsilon);
 	}
@@ -58,7 +174,136 @@ public class GoalKeeperCheatSheetNeuronalNetwork {
 	}
 	
 	/**
-	 * Teaches the network with the given set of training records.
+	 * Sets the number of training records the network learns before its
+	 * weights are updated. A batch size of 1 (default) teaches the network
+	 * online, record by record, until each record is learned. A larger batch
+	 * size teaches it by mini-batch gradient descent: the weight changes of
+	 * all records of a batch are summed up and applied at once.
+	 * 
+	 * @param batchSize
+	 *            The number of training records per weight update.
+	 *            [0<batch size]
+	 */
+	public void setBatchSize(int batchSize) {
+		if (batchSize > 0) {
+			this.batchSize = batchSize;
+		}
+	}
+
+	/**
+	 * Selects how the network's weights are updated while teaching, e.g. by
+	 * a MomentumOptimizer or AdamOptimizer, which usually reach the epsilon
+	 * in far fewer epochs. Null selects plain gradient descent (default).
+	 * 
+	 * @param optimizer
+	 *            The optimizer, used by this network only.
+	 */
+	public void setOptimizer(Optimizer optimizer) {
+		this.NN.setOptimizer(optimizer);
+	}
+
+	/**
+	 * Sets the limits of the following teaching runs.
+	 * 
+	 * @param schedule
+	 *            The schedule bounding each teaching run.
+	 */
+	public void setTrainingSchedule(TrainingSchedule schedule) {
+		if (schedule != null) {
+			this.schedule = schedule;
+		}
+	}
+
+	public TrainingSchedule getTrainingSchedule() {
+		return schedule;
+	}
+
+	/**
+	 * Adds a listener receiving the progress of the following teaching runs,
+	 * e.g. a PrintStreamTrainingListener printing it to the console.
+	 * 
+	 * @param listener
+	 *            The listener to add.
+	 */
+	public void addTrainingListener(TrainingListener listener) {
+		if (listener != null) {
+			listeners.add(listener);
+		}
+	}
+
+	/**
+	 * Removes a listener added by addTrainingListener().
+	 * 
+	 * @param listener
+	 *            The listener to remove.
+	 */
+	public void removeTrainingListener(TrainingListener listener) {
+		listeners.remove(listener);
+	}
+
+	/**
+	 * Sets the number of already learned shots an incremental teaching run
+	 * replays besides the new shots. The buffer is refilled with a new sample
+	 * of all shots learned so far.
+	 * 
+	 * @param replayBufferSize
+	 *            The maximum number of replayed shots. [0<=size]
+	 */
+	public void setReplayBufferSize(int replayBufferSize) {
+		if (replayBufferSize >= 0) {
+			replayBuffer = new int[replayBufferSize];
+			replayBufferCount = 0;
+			for (int i = 0; i < learnedShots.size(); i++) {
+				addToReplayBuffer(i);
+			}
+		}
+	}
+
+	/**
+	 * Sets the number of threads teaching the network. With more than one
+	 * thread the training records are split into shards which are taught in
+	 * parallel, see ParallelTrainer. A batch size larger than 1 is used for
+	 * the weight updates in SYNCHRONOUS mode, otherwise the trainer's
+	 * DEFAULT_BATCH_SIZE, as batches of single records would give every
+	 * thread but one nothing to do.
+	 * 
+	 * @param numOfThreads
+	 *            The number of threads teaching the network. [0<threads]
+	 * @param mode
+	 *            How the threads update the weights of the network.
+	 */
+	public void setNumOfThreads(int numOfThreads, ParallelTrainer.Mode mode) {
+		if (trainer != null) {
+			trainer.shutdown();
+			trainer = null;
+		}
+		if (numOfThreads > 1) {
+			trainer = new ParallelTrainer(NN, numOfThreads, mode);
+		}
+	}
+
+	/**
+	 * Selects the transfer function used while teaching and asking the
+	 * network, e.g. a LookupTableSigmoid or RationalSigmoid to trade precision
+	 * for speed. Use ActivationAccuracy to compare it to the exact sigmoid.
+	 * 
+	 * @param activation
+	 *            The transfer function of the network's neurons.
+	 */
+	public void setActivation(Activation activation) {
+		this.NN.setActivation(activation);
+	}
+
+	/**
+	 * Teaches the network with the given set of training records. The run
+	 * ends when all records are correctly classified or a limit of the
+	 * training schedule is reached. Afterwards the network holds the best
+	 * weights of the run: the ones classifying the most records correctly,
+	 * with the lowest total error among those.
+	 * 
+	 * Interrupting the teaching thread ends the run after the current epoch,
+	 * see TrainingJob. The threads of a ParallelTrainer have stopped by then,
+	 * so the weights are not changed after the run.
 	 * 
 	 * @param shots
 	 *            The list of training records containing PenaltyShots observed
@@ -66,71 +311,224 @@ public class GoalKeeperCheatSheetNeuronalNetwork {
 	 * @return The benchmarking object for this teaching run.
 	 */
 	public BenchmarkTeaching teach(List<PenaltyShot> shots) {
+		int start = addShots(shots);
+		for (int i = start; i < learnedShots.size(); i++) {
+			addToReplayBuffer(i);
+		}
+		return teachRecords(learnedShots);
+	}
+
+	/**
+	 * Teaches the network with the given set of training records, see
+	 * teach(List<PenaltyShot>). The records are copied into the learned
+	 * records at once, without creating any PenaltyShots.
+	 * 
+	 * @param shots
+	 *            The training records as imported by
+	 *            PenaltyShotImporter.processFile(File, TrainingSet).
+	 * @return The benchmarking object for this teaching run.
+	 */
+	public BenchmarkTeaching teach(TrainingSet shots) {
+		int start = learnedShots.size();
 		learnedShots.addAll(shots);
-		int numOfTestCases = learnedShots.size();
+		for (int i = start; i < learnedShots.size(); i++) {
+			addToReplayBuffer(i);
+		}
+		return teachRecords(learnedShots);
+	}
 
-		// Define the input and teaching arrays
-		double[][] in = new double[numOfTestCases][NUM_OF_INPUT_NODES];
-		double[][] teach = new double[numOfTestCases][NUM_OF_OUTPUT_NODES];
-		for (int i = 0; i < numOfTestCases; i++) {
-			in[i][0] = learnedShots.get(i).getRunUpLength();
-			in[i][1] = learnedShots.get(i).getRunUpDirection();
-			in[i][2] = learnedShots.get(i).getDelay();
-			in[i][3] = learnedShots.get(i).getFouled();
-			in[i][4] = learnedShots.get(i).getPlace();
-			in[i][5] = learnedShots.get(i).getOwnFanBlock();
-			in[i][6] = learnedShots.get(i).getImportance();
-			in[i][7] = learnedShots.get(i).getSpectators();
-			teach[i][0] = learnedShots.get(i).getTargetX();
-			teach[i][1] = learnedShots.get(i).getTargetY();
-		}
-
-		double[] output = new double[NUM_OF_OUTPUT_NODES];
+	/**
+	 * Continues teaching the network with the shots learned so far, e.g.
+	 * after a run ended by a limit of the training schedule. The run starts
+	 * from the network's current weights. The network must have been taught
+	 * before.
+	 * 
+	 * @return The benchmarking object for this teaching run.
+	 */
+	public BenchmarkTeaching continueTeaching() {
+		return teachRecords(learnedShots);
+	}
+
+	/**
+	 * Teaches the network incrementally with new training records. Unlike
+	 * teach(), the network is only taught the new records and a uniform
+	 * sample of the records learned before, at most the replay buffer size.
+	 * The cost of a run therefore depends on the number of new records, not
+	 * on the number of all records learned so far.
+	 * 
+	 * @param shots
+	 *            The list of new training records containing PenaltyShots.
+	 * @return The benchmarking object for this teaching run, measured on the
+	 *         new and the replayed records.
+	 */
+	public BenchmarkTeaching teachIncremental(List<PenaltyShot> shots) {
+		return teachIncremental(addShots(shots));
+	}
+
+	/**
+	 * Teaches the network incrementally with new training records, see
+	 * teachIncremental(List<PenaltyShot>).
+	 * 
+	 * @param shots
+	 *            The new training records as imported by
+	 *            PenaltyShotImporter.processFile(File, TrainingSet).
+	 * @return The benchmarking object for this teaching run, measured on the
+	 *         new and the replayed records.
+	 */
+	public BenchmarkTeaching teachIncremental(TrainingSet shots) {
+		int start = learnedShots.size();
+		learnedShots.addAll(shots);
+		return teachIncremental(start);
+	}
+
+	/**
+	 * Teaches the network the learned records from the given index on and
+	 * the replayed records.
+	 * 
+	 * @param start
+	 *            The index of the first new record.
+	 * @return The benchmarking object for this teaching run.
+	 */
+	private BenchmarkTeaching teachIncremental(int start) {
+		if (learnedShots.size() - start + replayBufferCount == 0) {
+			return new BenchmarkTeaching(0, 0, 0.0, 0.0, 0.0, 0.0);
+		}
+
+		// The new records followed by the replayed ones
+		incrementalShots.clear();
+		for (int i = start; i < learnedShots.size(); i++) {
+			incrementalShots.add(learnedShots, i);
+		}
+		for (int i = 0; i < replayBufferCount; i++) {
+			incrementalShots.add(learnedShots, replayBuffer[i]);
+		}
+
+		BenchmarkTeaching benchmark = teachRecords(incrementalShots);
+
+		// The new records may be replayed by the following runs
+		for (int i = start; i < learnedShots.size(); i++) {
+			addToReplayBuffer(i);
+		}
+
+		return benchmark;
+	}
+
+	/**
+	 * Adds shots to the training records of the learned shots.
+	 * 
+	 * @param shots
+	 *            The list of new training records.
+	 * @return The index of the first new shot.
+	 */
+	private int addShots(List<PenaltyShot> shots) {
+		int numOfLearnedCases = learnedShots.size();
+
+		learnedShots.ensureCapacity(numOfLearnedCases + shots.size());
+		for (PenaltyShot shot : shots) {
+			int record = learnedShots.add();
+			learnedShots.setFeature(record, 0, shot.getRunUpLength());
+			learnedShots.setFeature(record, 1, shot.getRunUpDirection());
+			learnedShots.setFeature(record, 2, shot.getDelay());
+			learnedShots.setFeature(record, 3, shot.getFouled());
+			learnedShots.setFeature(record, 4, shot.getPlace());
+			learnedShots.setFeature(record, 5, shot.getOwnFanBlock());
+			learnedShots.setFeature(record, 6, shot.getImportance());
+			learnedShots.setFeature(record, 7, shot.getSpectators());
+			learnedShots.setTarget(record, 0, shot.getTargetX());
+			learnedShots.setTarget(record, 1, shot.getTargetY());
+		}
+
+		return numOfLearnedCases;
+	}
+
+	/**
+	 * Offers a learned shot to the replay buffer. After n offered shots every
+	 * one of them is in the buffer with the same probability.
+	 * 
+	 * @param index
+	 *            The index of the shot in the learned training records.
+	 */
+	private void addToReplayBuffer(int index) {
+		if (replayBufferCount < replayBuffer.length) {
+			replayBuffer[replayBufferCount++] = index;
+		} else {
+			int slot = random.nextInt(index + 1);
+			if (slot < replayBuffer.length) {
+				replayBuffer[slot] = index;
+			}
+		}
+	}
+
+	/**
+	 * Teaches the network with the given training records, see
+	 * teach(List<PenaltyShot>).
+	 * 
+	 * @param records
+	 *            The training records. [0<records]
+	 * @return The benchmarking object for this teaching run.
+	 */
+	private BenchmarkTeaching teachRecords(TrainingSet records) {
+		int numOfTestCases = records.size();
 		double error = 0.0;
 		double totalError = 0.0;
 		double maxError = 0.0;
 		double minError = Double.MAX_VALUE;
-		boolean learned;
 		int iterations = 0;
 		int correctClassifications = 0;
 
-		System.out.printf("Starting:\n");
-		// Learn until all training data record is correctly classified
-		while (correctClassifications < numOfTestCases) {
-			// Perform backpropagation until the network has learned
-			for (int i = 0; i < numOfTestCases; i++) {
-				iterations++;
+		// The best state of the network found so far
+		int bestEpoch = 0;
+		int bestCorrectClassifications = -1;
+		double bestTotalError = Double.MAX_VALUE;
+		double bestMaxError = 0.0;
+		double bestMinError = 0.0;
 
-				for (int j = 0; j < NUM_OF_INPUT_NODES; j++) {
-					NN.setInput(j, in[i][j]);
-				}
+		// The last epoch improving the total error, for early stopping
+		int improvedEpoch = 0;
+		double improvedTotalError = Double.MAX_VALUE;
 
-				learned = false;
+		long deadline = schedule.getTimeBudget() > 0 ? System
+				.currentTimeMillis() + schedule.getTimeBudget()
+				: Long.MAX_VALUE;
 
-				while (!learned) {
-					NN.apply();
+		// The metrics are only collected for listeners and tracing
+		Trace.Sink trace = Trace.getSink();
+		boolean listening = !listeners.isEmpty() || (trace != null);
+		long epochStart = 0;
+		TrainingListener.StopReason reason = TrainingListener.StopReason.LEARNED;
 
-					for (int j = 0; j < NUM_OF_OUTPUT_NODES; j++) {
-						output[j] = NN.getOutput(j);
-					}
+		if (listening) {
+			for (TrainingListener listener : listeners) {
+				listener.trainingStarted(numOfTestCases);
+			}
+		}
 
-					error = NN.energy(teach[i], output);
+		// Learn until all training data record is correctly classified
+		while (correctClassifications < numOfTestCases) {
+			if (listening) {
+				epochStart = System.nanoTime();
+			}
 
-					if (error > NN.getEpsilon()) {
-						NN.backpropagate(teach[i]);
-					} else {
-						learned = true;
-					}
-				}
+			if (trainer != null) {
+				trainer.setBatchSize(batchSize > 1 ? batchSize
+						: ParallelTrainer.DEFAULT_BATCH_SIZE);
+				trainer.teachEpoch(records);
+			} else if (batchSize > 1) {
+				teachMiniBatches(records, deadline);
+			} else {
+				teachOnline(records, deadline);
 			}
+			iterations += numOfTestCases;
 
 			// Calculate the error for the current state of the network
 			correctClassifications = 0;
 			totalError = 0.0f;
+			maxError = 0.0;
+			minError = Double.MAX_VALUE;
+			double[] in = records.getFeatures();
+			double[] teach = records.getTargets();
 			for (int i = 0; i < numOfTestCases; i++) {
-				for (int j = 0; j < NUM_OF_INPUT_NODES; j++) {
-					NN.setInput(j, in[i][j]);
-				}
+				NN.setInputs(in, i * NUM_OF_INPUT_NODES);
 
 				NN.apply();
 
@@ -138,7 +536,7 @@ public class GoalKeeperCheatSheetNeuronalNetwork {
 					output[j] = NN.getOutput(j);
 				}
 
-				error = NN.energy(teach[i], output);
+				error = NN.energy(teach, i * NUM_OF_OUTPUT_NODES, output);
 
 				if (error < minError)
 					minError = error;
@@ -152,21 +550,168 @@ public class GoalKeeperCheatSheetNeuronalNetwork {
 				}
 			}
 
-			if ((iterations / numOfTestCases)
-					% ITERATIONS_INTERVALL_FOR_PRINTOUT == 0)
-				System.out.printf("[%4d]>> Korrekte: %d Fehler : %f\n",
-						iterations / numOfTestCases, correctClassifications,
-						totalError);
-			if ((iterations / numOfTestCases) > NUM_OF_MAXIMUM_ITERATIONS) {
-				System.out.println("Break due to too much iterations");
+			int epoch = iterations / numOfTestCases;
+
+			// Keep the weights if they are the best so far
+			if ((correctClassifications > bestCorrectClassifications)
+					|| ((correctClassifications == bestCorrectClassifications)
+							&& (totalError < bestTotalError))) {
+				bestEpoch = epoch;
+				bestCorrectClassifications = correctClassifications;
+				bestTotalError = totalError;
+				bestMaxError = maxError;
+				bestMinError = minError;
+				NN.getWeights(bestWeightsToHidden, bestWeightsToOutput);
+			}
+
+			if (totalError < improvedTotalError - schedule.getMinImprovement()) {
+				improvedEpoch = epoch;
+				improvedTotalError = totalError;
+			}
+
+			if (listening) {
+				EpochMetrics metrics = new EpochMetrics(epoch,
+						numOfTestCases, correctClassifications, totalError,
+						minError, maxError, System.nanoTime() - epochStart);
+				for (TrainingListener listener : listeners) {
+					listener.epochFinished(metrics);
+				}
+				if (trace != null) {
+					trace.epoch(metrics);
+				}
+			}
+
+			// A learned epoch ends the run as learned, even if it reached a
+			// limit or was cancelled at the same time
+			if (correctClassifications == numOfTestCases) {
+				break;
+			}
+			// The trainer's workers have stopped when teachEpoch() returns
+			if (Thread.currentThread().isInterrupted()) {
+				reason = TrainingListener.StopReason.CANCELLED;
+				break;
+			}
+			if (epoch >= schedule.getMaxEpochs()) {
+				reason = TrainingListener.StopReason.MAX_EPOCHS;
 				break;
 			}
+			if (System.currentTimeMillis() > deadline) {
+				reason = TrainingListener.StopReason.TIME_BUDGET;
+				break;
+			}
+			if ((schedule.getPatience() > 0)
+					&& (epoch - improvedEpoch >= schedule.getPatience())) {
+				reason = TrainingListener.StopReason.NO_IMPROVEMENT;
+				break;
+			}
+		}
+
+		// Restore the best weights found
+		if (bestEpoch != iterations / numOfTestCases) {
+			NN.setWeights(bestWeightsToHidden, bestWeightsToOutput);
 		}
 
 		// Return a benchmark of the current teaching process
-		return new BenchmarkTeaching(iterations / numOfTestCases,
-				correctClassifications, totalError, maxError, totalError
-						/ numOfTestCases, minError);
+		BenchmarkTeaching benchmark = new BenchmarkTeaching(iterations
+				/ numOfTestCases, bestCorrectClassifications, bestTotalError,
+				bestMaxError, bestTotalError / numOfTestCases, bestMinError);
+
+		if (listening) {
+			for (TrainingListener listener : listeners) {
+				listener.trainingFinished(reason, benchmark);
+			}
+		}
+
+		return benchmark;
+	}
+
+	/**
+	 * Teaches the network one epoch online: the network performs
+	 * backpropagation on each training record until it has learned the record,
+	 * but at most the schedule's maximum iterations per record.
+	 * The epoch is cut short if the teaching thread is interrupted or the
+	 * deadline has passed.
+	 * 
+	 * @param records
+	 *            The training records.
+	 * @param deadline
+	 *            The end of the run's time budget in milliseconds.
+	 */
+	private void teachOnline(TrainingSet records, long deadline) {
+		double error;
+		boolean learned;
+		int maxIterations = schedule.getMaxIterationsPerRecord();
+		int numOfTestCases = records.size();
+		double[] in = records.getFeatures();
+		double[] teach = records.getTargets();
+
+		for (int i = 0; i < numOfTestCases; i++) {
+			// A single epoch may take long, so cancelling and the time budget
+			// are checked per record
+			if (Thread.currentThread().isInterrupted()
+					|| (System.currentTimeMillis() > deadline)) {
+				return;
+			}
+
+			NN.setInputs(in, i * NUM_OF_INPUT_NODES);
+
+			learned = false;
+
+			for (int k = 0; (k < maxIterations) && !learned; k++) {
+				NN.apply();
+
+				for (int j = 0; j < NUM_OF_OUTPUT_NODES; j++) {
+					output[j] = NN.getOutput(j);
+				}
+
+				error = NN.energy(teach, i * NUM_OF_OUTPUT_NODES, output);
+
+				if (error > NN.getEpsilon()) {
+					NN.backpropagate(teach, i * NUM_OF_OUTPUT_NODES);
+				} else {
+					learned = true;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Teaches the network one epoch by mini-batch gradient descent: the
+	 * weight changes of batchSize training records are accumulated and
+	 * applied to the network at once. The epoch is cut short after the batch
+	 * in which the deadline has passed.
+	 * 
+	 * @param records
+	 *            The training records.
+	 * @param deadline
+	 *            The end of the run's time budget in milliseconds.
+	 */
+	private void teachMiniBatches(TrainingSet records, long deadline) {
+		int numOfTestCases = records.size();
+		double[] in = records.getFeatures();
+		double[] teach = records.getTargets();
+
+		gradient.clear();
+
+		for (int i = 0; i < numOfTestCases; i++) {
+			NN.setInputs(in, i * NUM_OF_INPUT_NODES);
+
+			NN.apply();
+			NN.accumulateGradient(teach, i * NUM_OF_OUTPUT_NODES, gradient);
+
+			if (gradient.getSamples() == batchSize) {
+				NN.applyGradient(gradient);
+				gradient.clear();
+
+				if (System.currentTimeMillis() > deadline) {
+					return;
+				}
+			}
+		}
+
+		if (gradient.getSamples() > 0) {
+			NN.applyGradient(gradient);
+		}
 	}
 
 	/**
@@ -177,42 +722,252 @@ public class GoalKeeperCheatSheetNeuronalNetwork {
 	 * @return The String specifying the where the shot might go to.
 	 */
 	public String ask(PenaltyShot penaltyShot) {
+		return ask(penaltyShot, null);
+	}
+
+	/**
+	 * Asks the Neuronal Network where a shot might goes to, see
+	 * ask(PenaltyShot), and returns its raw outputs as well.
+	 * 
+	 * @param penaltyShot
+	 *            A PenaltyShot with all existing input parameters.
+	 * @param outputs
+	 *            The array of length NUM_OF_OUTPUT_NODES the outputs of the
+	 *            network are written to, or null.
+	 * @return The String specifying the where the shot might go to.
+	 */
+	public String ask(PenaltyShot penaltyShot, double[] outputs) {
+		Trace.Sink trace = Trace.getSink();
+		if ((trace != null) && Trace.samplePrediction()) {
+			long start = System.nanoTime();
+			String target = predict(penaltyShot, outputs);
+			trace.prediction(System.nanoTime() - start);
+			return target;
+		}
+		return predict(penaltyShot, outputs);
+	}
+
+	/**
+	 * Predicts where a shot might go to, see ask(PenaltyShot, double[]).
+	 */
+	private String predict(PenaltyShot penaltyShot, double[] outputs) {
+		// Look the answer up if the shot has the normalized input parameters
+		int code = PenaltyShotEncoding.encodeInput(penaltyShot);
+		if (code >= 0) {
+			PredictionTable table = getPredictionTable();
+			if (outputs != null) {
+				for (int j = 0; j < NUM_OF_OUTPUT_NODES; j++) {
+					outputs[j] = table.getOutput(code, j);
+				}
+			}
+			return TARGETS[table.getTarget(code)];
+		}
+
+		NetworkContext context = contexts.get();
+
 		// Set the Input parameters
-		NN.setInput(0, penaltyShot.getRunUpLength());
-		NN.setInput(1, penaltyShot.getRunUpDirection());
-		NN.setInput(2, penaltyShot.getDelay());
-		NN.setInput(3, penaltyShot.getFouled());
-		NN.setInput(4, penaltyShot.getPlace());
-		NN.setInput(5, penaltyShot.getOwnFanBlock());
-		NN.setInput(6, penaltyShot.getImportance());
-		NN.setInput(7, penaltyShot.getSpectators());
+		context.setInput(0, penaltyShot.getRunUpLength());
+		context.setInput(1, penaltyShot.getRunUpDirection());
+		context.setInput(2, penaltyShot.getDelay());
+		context.setInput(3, penaltyShot.getFouled());
+		context.setInput(4, penaltyShot.getPlace());
+		context.setInput(5, penaltyShot.getOwnFanBlock());
+		context.setInput(6, penaltyShot.getImportance());
+		context.setInput(7, penaltyShot.getSpectators());
 
 		// Apply the network for the given input
-		NN.apply();
+		NN.apply(context);
+
+		if (outputs != null) {
+			for (int j = 0; j < NUM_OF_OUTPUT_NODES; j++) {
+				outputs[j] = context.getOutput(j);
+			}
+		}
 
-		// Get the output of the network
-		double[] o = new double[NUM_OF_OUTPUT_NODES];
-		for (int j = 0; j < NUM_OF_OUTPUT_NODES; j++) {
-			o[j] = NN.getOutput(j);
+		// Return the calculated target's String representation
+		return getTarget(context.getOutput(0), context.getOutput(1));
+	}
+
+	/**
+	 * Asks the Neuronal Network where each of the given shots might go to. The
+	 * shots are scored as one batch, which is considerably faster than asking
+	 * for every shot on its own.
+	 * 
+	 * @param penaltyShots
+	 *            The PenaltyShots with all existing input parameters.
+	 * @return The Strings specifying where the shots might go to, in the order
+	 *         of the given shots.
+	 */
+	public List<String> askAll(List<PenaltyShot> penaltyShots) {
+		int numOfShots = penaltyShots.size();
+		PredictionTable table = getPredictionTable();
+
+		// Look the answers up, the shots without normalized input parameters
+		// are applied to the network afterwards
+		List<String> targets = new ArrayList<String>(numOfShots);
+		int[] codes = new int[numOfShots];
+		int numOfOtherShots = 0;
+		for (int i = 0; i < numOfShots; i++) {
+			codes[i] = PenaltyShotEncoding.encodeInput(penaltyShots.get(i));
+			if (codes[i] >= 0) {
+				targets.add(TARGETS[table.getTarget(codes[i])]);
+			} else {
+				targets.add(null);
+				numOfOtherShots++;
+			}
+		}
+		if (numOfOtherShots == 0) {
+			return targets;
+		}
+
+		// Define the input and output arrays
+		double[][] in = new double[numOfOtherShots][NUM_OF_INPUT_NODES];
+		double[][] out = new double[numOfOtherShots][NUM_OF_OUTPUT_NODES];
+		for (int i = 0, j = 0; i < numOfShots; i++) {
+			if (codes[i] < 0) {
+				getInput(penaltyShots.get(i), in[j++]);
+			}
+		}
+
+		// Apply the network for all inputs at once
+		NN.applyBatch(in, out, contexts.get());
+
+		// Converting the outputs to their String representations
+		for (int i = 0, j = 0; i < numOfShots; i++) {
+			if (codes[i] < 0) {
+				targets.set(i, getTarget(out[j][0], out[j][1]));
+				j++;
+			}
+		}
+		return targets;
+	}
+
+	/**
+	 * Quantizes the network's current weights to int8, e.g. for scoring large
+	 * batches of shots. Use QuantizationAccuracy to compare its answers to the
+	 * ones of ask().
+	 * 
+	 * @return The quantized copy of the network.
+	 */
+	public QuantizedNetwork quantize() {
+		return new QuantizedNetwork(NN);
+	}
+
+	/**
+	 * Returns the memory taken by the network's weights in bytes.
+	 */
+	public int getSizeInBytes() {
+		int numOfHidden = NN.getHiddenNeurons();
+		return (numOfHidden * (NUM_OF_INPUT_NODES + 1) + NUM_OF_OUTPUT_NODES
+				* (numOfHidden + 1)) * 8;
+	}
+
+	/**
+	 * Returns the answers of the network for all combinations of input
+	 * parameters. The table is computed when it is needed for the first time
+	 * after the weights have changed, e.g. by a teaching run.
+	 * 
+	 * @return The prediction table for the current weights.
+	 */
+	public PredictionTable getPredictionTable() {
+		PredictionTable table = predictionTable;
+		if ((table == null) || (table.getVersion() != NN.getVersion())) {
+			table = new PredictionTable(NN);
+			predictionTable = table;
 		}
+		return table;
+	}
+
+	/**
+	 * Returns if a TrainingJob is teaching the network.
+	 */
+	public boolean isJobRunning() {
+		return jobRunning.get();
+	}
+
+	/**
+	 * Reserves the network for a TrainingJob.
+	 * 
+	 * @return false if another job already teaches the network.
+	 */
+	boolean startJob() {
+		return jobRunning.compareAndSet(false, true);
+	}
+
+	/**
+	 * Releases the network reserved by startJob().
+	 */
+	void finishJob() {
+		jobRunning.set(false);
+	}
+
+	/**
+	 * Creates an empty set of training records with the layout of this
+	 * network's input and teaching vectors, e.g. to be filled by
+	 * PenaltyShotImporter.processFile(File, TrainingSet).
+	 * 
+	 * @return The new training set.
+	 */
+	public static TrainingSet createTrainingSet() {
+		return new TrainingSet(NUM_OF_INPUT_NODES, NUM_OF_OUTPUT_NODES);
+	}
+
+	/**
+	 * Writes the input parameters of a PenaltyShot into an input vector.
+	 * 
+	 * @param penaltyShot
+	 *            The PenaltyShot to read the input parameters from.
+	 * @param in
+	 *            The input vector of length NUM_OF_INPUT_NODES.
+	 */
+	private static void getInput(PenaltyShot penaltyShot, double[] in) {
+		in[0] = penaltyShot.getRunUpLength();
+		in[1] = penaltyShot.getRunUpDirection();
+		in[2] = penaltyShot.getDelay();
+		in[3] = penaltyShot.getFouled();
+		in[4] = penaltyShot.getPlace();
+		in[5] = penaltyShot.getOwnFanBlock();
+		in[6] = penaltyShot.getImportance();
+		in[7] = penaltyShot.getSpectators();
+	}
+
+	/**
+	 * Converts the output of the network to it's String representation.
+	 * 
+	 * @param x
+	 *            The output of the network for the target's X-coordinate.
+	 * @param y
+	 *            The output of the network for the target's Y-coordinate.
+	 * @return The String specifying where the shot might go to.
+	 */
+	static String getTarget(double x, double y) {
+		return TARGETS[getTargetIndex(x, y)];
+	}
 
-		// Converting the output to it's String representation
-		StringBuilder builder = new StringBuilder();
-		if (o[0] <= 0.33) {
-			builder.append("links");
-		} else if (o[0] <= 0.66) {
-			builder.append("mitte");
+	/**
+	 * Converts the output of the network to the index of the target.
+	 * 
+	 * @param x
+	 *            The output of the network for the target's X-coordinate.
+	 * @param y
+	 *            The output of the network for the target's Y-coordinate.
+	 * @return The index of the target, (x-coordinate * 2 + y-coordinate).
+	 */
+	static int getTargetIndex(double x, double y) {
+		int target;
+		if (x <= 0.33) {
+			target = 0; // links
+		} else if (x <= 0.66) {
+			target = 2; // mitte
 		} else {
-			builder.append("rechts");
+			target = 4; // rechts
 		}
-		if (o[1] <= 0.5) {
-			builder.append("Unten");
+		if (y <= 0.5) {
+			// Unten
 		} else {
-			builder.append("Oben");
+			target++; // Oben
 		}
-
-		// Return the calculated target's String representation
-		return builder.toString();
+		return target;
 	}
 
 	/**
@@ -220,12 +975,12 @@ public class GoalKeeperCheatSheetNeuronalNetwork {
 	 * learning process of the network.
 	 */
 	public class BenchmarkTeaching {
-		int iterations;
-		int correctItems;
-		double totalError;
-		double maxError;
-		double avgError;
-		double minError;
+		private final int iterations;
+		private final int correctItems;
+		private final double totalError;
+		private final double maxError;
+		private final double avgError;
+		private final double minError;
 
 		public BenchmarkTeaching(int iterations, int correctItems,
 				double totalError, double maxError, double avgError,
@@ -237,5 +992,37 @@ public class GoalKeeperCheatSheetNeuronalNetwork {
 			this.avgError = avgError;
 			this.minError = minError;
 		}
+
+		public int getIterations() {
+			return iterations;
+		}
+
+		public int getCorrectItems() {
+			return correctItems;
+		}
+
+		public double getTotalError() {
+			return totalError;
+		}
+
+		public double getMaxError() {
+			return maxError;
+		}
+
+		public double getAvgError() {
+			return avgError;
+		}
+
+		public double getMinError() {
+			return minError;
+		}
+
+		@Override
+		public String toString() {
+			return "BenchmarkTeaching [iterations=" + iterations
+					+ ", correctItems=" + correctItems + ", totalError="
+					+ totalError + ", maxError=" + maxError + ", avgError="
+					+ avgError + ", minError=" + minError + "]";
+		}
 	}
 }
@@ -0,0 +1,484 @@
+package GoalKeeperCheatSheet;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import FeedForwardNetwork.TrainingSet;
+import GoalKeeperCheatSheet.GoalKeeperCheatSheetNeuronalNetwork.BenchmarkTeaching;
+
+/**
+ * This class searches the number of hidden nodes, the epsilon and the
+ * learning rate of a GoalKeeperCheatSheetNeuronalNetwork. Every configuration
+ * is taught as an independent network; the networks are taught in parallel
+ * by the tasks of an executor.
+ *
+ * The configurations are ranked by the average error of their best weights,
+ * which unlike the number of correct items does not depend on the epsilon.
+ * Configurations of a grid() or random() search are taught up to the limits
+ * of the training schedule. successiveHalving() kills the losing
+ * configurations early.
+ */
+public class HyperparameterSearch {
+	public static final int DEFAULT_MIN_EPOCHS = 10;
+	public static final int DEFAULT_REDUCTION_FACTOR = 3;
+
+	/**
+	 * This class is a data object class holding the hyperparameters of a
+	 * network.
+	 */
+	public static class Configuration {
+		private final int numOfHiddenNodes;
+		private final double epsilon;
+		private final double learningRate;
+
+		public Configuration(int numOfHiddenNodes, double epsilon,
+				double learningRate) {
+			this.numOfHiddenNodes = numOfHiddenNodes;
+			this.epsilon = epsilon;
+			this.learningRate = learningRate;
+		}
+
+		public int getNumOfHiddenNodes() {
+			return numOfHiddenNodes;
+		}
+
+		public double getEpsilon() {
+			return epsilon;
+		}
+
+		public double getLearningRate() {
+			return learningRate;
+		}
+
+		@Override
+		public String toString() {
+			return "Configuration [numOfHiddenNodes=" + numOfHiddenNodes
+					+ ", epsilon=" + epsilon + ", learningRate="
+					+ learningRate + "]";
+		}
+	}
+
+	/**
+	 * This class is a data object class containing the outcome of teaching a
+	 * configuration.
+	 */
+	public static class Result {
+		private final Configuration configuration;
+		private final BenchmarkTeaching benchmark;
+		private final int epochs;
+		private final long wallTime;
+		private final boolean killed;
+
+		public Result(Configuration configuration,
+				BenchmarkTeaching benchmark, int epochs, long wallTime,
+				boolean killed) {
+			this.configuration = configuration;
+			this.benchmark = benchmark;
+			this.epochs = epochs;
+			this.wallTime = wallTime;
+			this.killed = killed;
+		}
+
+		public Configuration getConfiguration() {
+			return configuration;
+		}
+
+		/**
+		 * Returns the benchmark of the last teaching run of the
+		 * configuration.
+		 */
+		public BenchmarkTeaching getBenchmark() {
+			return benchmark;
+		}
+
+		/**
+		 * Returns the number of epochs of all teaching runs of the
+		 * configuration.
+		 */
+		public int getEpochs() {
+			return epochs;
+		}
+
+		/**
+		 * Returns the time spent teaching the configuration in ms.
+		 */
+		public long getWallTime() {
+			return wallTime;
+		}
+
+		/**
+		 * Returns if the configuration was killed before the end of the
+		 * search.
+		 */
+		public boolean isKilled() {
+			return killed;
+		}
+
+		@Override
+		public String toString() {
+			return "Result [configuration=" + configuration + ", benchmark="
+					+ benchmark + ", epochs=" + epochs + ", wallTime="
+					+ wallTime + ", killed=" + killed + "]";
+		}
+	}
+
+	// Ranks by the average error, the lowest first
+	private static final Comparator<Candidate> RANKING =
+			new Comparator<Candidate>() {
+				public int compare(Candidate a, Candidate b) {
+					return Double.compare(a.benchmark.getAvgError(),
+							b.benchmark.getAvgError());
+				}
+			};
+
+	private final TrainingSet shots;
+	private TrainingSchedule schedule = new TrainingSchedule();
+	private long wallTime;
+
+	/**
+	 * Creates a new search.
+	 *
+	 * @param shots
+	 *            The training records every configuration is taught with,
+	 *            e.g. imported by PenaltyShotImporter.processFile(File,
+	 *            TrainingSet). [0<shots]
+	 */
+	public HyperparameterSearch(TrainingSet shots) {
+		this.shots = shots;
+	}
+
+	/**
+	 * Sets the limits of teaching a configuration. successiveHalving() teaches
+	 * a configuration at most the schedule's maximum epochs and time budget in
+	 * total; the remaining time budget is split across the rounds like the
+	 * remaining epochs.
+	 *
+	 * @param schedule
+	 *            The schedule bounding the teaching of each configuration.
+	 */
+	public void setTrainingSchedule(TrainingSchedule schedule) {
+		if (schedule != null) {
+			this.schedule = schedule;
+		}
+	}
+
+	/**
+	 * Returns the wall time of the last search in ms.
+	 */
+	public long getWallTime() {
+		return wallTime;
+	}
+
+	/**
+	 * Creates all combinations of the given hyperparameters.
+	 *
+	 * @return The configurations.
+	 */
+	public static List<Configuration> grid(int[] numOfHiddenNodes,
+			double[] epsilons, double[] learningRates) {
+		List<Configuration> configurations = new ArrayList<Configuration>();
+		for (int hidden : numOfHiddenNodes) {
+			for (double epsilon : epsilons) {
+				for (double learningRate : learningRates) {
+					configurations.add(new Configuration(hidden, epsilon,
+							learningRate));
+				}
+			}
+		}
+		return configurations;
+	}
+
+	/**
+	 * Creates random configurations. The number of hidden nodes is drawn
+	 * uniformly, the epsilon and the learning rate uniformly on a log scale.
+	 *
+	 * @param numOfConfigurations
+	 *            The number of configurations to create.
+	 * @param minHiddenNodes
+	 *            The minimum number of hidden nodes. [0<min]
+	 * @param maxHiddenNodes
+	 *            The maximum number of hidden nodes. [min<=max]
+	 * @param minEpsilon
+	 *            The minimum epsilon. [0<min]
+	 * @param maxEpsilon
+	 *            The maximum epsilon. [min<=max<1]
+	 * @param minLearningRate
+	 *            The minimum learning rate. [0<min]
+	 * @param maxLearningRate
+	 *            The maximum learning rate. [min<=max<10]
+	 * @param random
+	 *            The random generator, seeded to repeat a search.
+	 * @return The configurations.
+	 */
+	public static List<Configuration> random(int numOfConfigurations,
+			int minHiddenNodes, int maxHiddenNodes, double minEpsilon,
+			double maxEpsilon, double minLearningRate, double maxLearningRate,
+			Random random) {
+		List<Configuration> configurations = new ArrayList<Configuration>();
+		for (int i = 0; i < numOfConfigurations; i++) {
+			int hidden = minHiddenNodes
+					+ random.nextInt(maxHiddenNodes - minHiddenNodes + 1);
+			configurations.add(new Configuration(hidden, logUniform(
+					minEpsilon, maxEpsilon, random), logUniform(
+					minLearningRate, maxLearningRate, random)));
+		}
+		return configurations;
+	}
+
+	/**
+	 * Teaches every configuration up to the limits of the training schedule
+	 * with one task per processor, see search(ExecutorService, List).
+	 */
+	public List<Result> search(List<Configuration> configurations)
+			throws InterruptedException {
+		ExecutorService executor = createExecutor();
+		try {
+			return search(executor, configurations);
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	/**
+	 * Teaches every configuration up to the limits of the training schedule.
+	 *
+	 * @param executor
+	 *            The executor teaching the networks.
+	 * @param configurations
+	 *            The configurations to teach, e.g. created by grid() or
+	 *            random().
+	 * @return The results, ranked by the average error.
+	 * @throws InterruptedException
+	 *             If the search was interrupted. The networks being taught
+	 *             are cancelled.
+	 */
+	public List<Result> search(ExecutorService executor,
+			List<Configuration> configurations) throws InterruptedException {
+		long start = System.currentTimeMillis();
+		List<Candidate> candidates = createCandidates(configurations);
+
+		teach(executor, candidates, schedule.getMaxEpochs(),
+				schedule.getMaxEpochs());
+		Collections.sort(candidates, RANKING);
+
+		List<Result> results = new ArrayList<Result>();
+		for (Candidate candidate : candidates) {
+			results.add(candidate.getResult(false));
+		}
+
+		wallTime = System.currentTimeMillis() - start;
+		return results;
+	}
+
+	/**
+	 * Searches by successive halving with DEFAULT_MIN_EPOCHS and
+	 * DEFAULT_REDUCTION_FACTOR and one task per processor, see
+	 * successiveHalving(ExecutorService, List, int, int).
+	 */
+	public List<Result> successiveHalving(List<Configuration> configurations)
+			throws InterruptedException {
+		ExecutorService executor = createExecutor();
+		try {
+			return successiveHalving(executor, configurations,
+					DEFAULT_MIN_EPOCHS, DEFAULT_REDUCTION_FACTOR);
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	/**
+	 * Searches by successive halving: all configurations are taught for a few
+	 * epochs, then only the best of every reductionFactor configurations is
+	 * taught on for reductionFactor times as many epochs, and so on, until a
+	 * single configuration is left or the schedule's maximum epochs are
+	 * reached. The surviving networks continue from their weights.
+	 *
+	 * @param executor
+	 *            The executor teaching the networks.
+	 * @param configurations
+	 *            The configurations to teach, e.g. created by grid() or
+	 *            random().
+	 * @param minEpochs
+	 *            The epochs of the first round. [0<min epochs]
+	 * @param reductionFactor
+	 *            The factor the configurations are reduced by each round.
+	 *            [1<reduction factor]
+	 * @return The results, the survivors first, then the configurations
+	 *         killed in later rounds before the ones killed earlier. Within
+	 *         a round they are ranked by the average error.
+	 * @throws InterruptedException
+	 *             If the search was interrupted. The networks being taught
+	 *             are cancelled.
+	 */
+	public List<Result> successiveHalving(ExecutorService executor,
+			List<Configuration> configurations, int minEpochs,
+			int reductionFactor) throws InterruptedException {
+		minEpochs = minEpochs > 0 ? minEpochs : DEFAULT_MIN_EPOCHS;
+		reductionFactor = reductionFactor > 1 ? reductionFactor
+				: DEFAULT_REDUCTION_FACTOR;
+
+		long start = System.currentTimeMillis();
+		List<Candidate> candidates = createCandidates(configurations);
+		List<Result> killed = new ArrayList<Result>();
+		int epochs = 0;
+		int roundEpochs = minEpochs;
+
+		while (true) {
+			roundEpochs = Math.min(roundEpochs, schedule.getMaxEpochs()
+					- epochs);
+			teach(executor, candidates, roundEpochs, schedule.getMaxEpochs()
+					- epochs);
+			epochs += roundEpochs;
+			Collections.sort(candidates, RANKING);
+
+			if ((candidates.size() <= 1) || (epochs >= schedule.getMaxEpochs())) {
+				break;
+			}
+
+			// Kill the losers, the ones killed later rank first
+			int survivors = Math.max(1, candidates.size() / reductionFactor);
+			List<Result> losers = new ArrayList<Result>();
+			for (Candidate candidate : candidates.subList(survivors,
+					candidates.size())) {
+				losers.add(candidate.getResult(true));
+			}
+			killed.addAll(0, losers);
+			candidates = new ArrayList<Candidate>(candidates.subList(0,
+					survivors));
+			roundEpochs *= reductionFactor;
+		}
+
+		List<Result> results = new ArrayList<Result>();
+		for (Candidate candidate : candidates) {
+			results.add(candidate.getResult(false));
+		}
+		results.addAll(killed);
+
+		wallTime = System.currentTimeMillis() - start;
+		return results;
+	}
+
+	private List<Candidate> createCandidates(
+			List<Configuration> configurations) {
+		List<Candidate> candidates = new ArrayList<Candidate>();
+		for (Configuration configuration : configurations) {
+			candidates.add(new Candidate(configuration));
+		}
+		return candidates;
+	}
+
+	/**
+	 * Teaches every candidate for one round, one task per candidate.
+	 *
+	 * @param roundEpochs
+	 *            The maximum epochs of the round.
+	 * @param remainingEpochs
+	 *            The epochs left to the candidates including this round.
+	 */
+	private void teach(ExecutorService executor, List<Candidate> candidates,
+			final int roundEpochs, final int remainingEpochs)
+			throws InterruptedException {
+		List<Future<?>> tasks = new ArrayList<Future<?>>();
+
+		for (final Candidate candidate : candidates) {
+			tasks.add(executor.submit(new Callable<Void>() {
+				public Void call() {
+					candidate.teach(roundEpochs, remainingEpochs);
+					return null;
+				}
+			}));
+		}
+
+		try {
+			for (Future<?> task : tasks) {
+				task.get();
+			}
+		} catch (InterruptedException e) {
+			for (Future<?> task : tasks) {
+				task.cancel(true);
+			}
+			throw e;
+		} catch (ExecutionException e) {
+			for (Future<?> task : tasks) {
+				task.cancel(true);
+			}
+			throw new RuntimeException(e.getCause());
+		}
+	}
+
+	private static ExecutorService createExecutor() {
+		return Executors.newFixedThreadPool(Runtime.getRuntime()
+				.availableProcessors());
+	}
+
+	private static double logUniform(double min, double max, Random random) {
+		return min * Math.exp(random.nextDouble() * Math.log(max / min));
+	}
+
+	/**
+	 * A configuration with its own network, taught by one task at a time.
+	 */
+	private class Candidate {
+		private final Configuration configuration;
+		private GoalKeeperCheatSheetNeuronalNetwork network;
+		private BenchmarkTeaching benchmark;
+		private int epochs;
+		private long wallTime;
+
+		public Candidate(Configuration configuration) {
+			this.configuration = configuration;
+		}
+
+		/**
+		 * Teaches the network for one round, the first time with the shots of
+		 * the search, afterwards continuing from its current weights. The
+		 * round gets the share of the remaining time budget that its epochs
+		 * have of the remaining epochs.
+		 */
+		public void teach(int roundEpochs, int remainingEpochs) {
+			long start = System.currentTimeMillis();
+
+			// at least 1 ms, as 0 would not limit the round at all
+			long timeBudget = 0;
+			if (schedule.getTimeBudget() > 0) {
+				timeBudget = Math.max(1, (schedule.getTimeBudget() - wallTime)
+						* roundEpochs / remainingEpochs);
+			}
+			TrainingSchedule roundSchedule = new TrainingSchedule(roundEpochs,
+					schedule.getMaxIterationsPerRecord(), timeBudget,
+					schedule.getPatience(), schedule.getMinImprovement());
+
+			if (network == null) {
+				network = new GoalKeeperCheatSheetNeuronalNetwork(
+						configuration.getNumOfHiddenNodes(),
+						configuration.getEpsilon(),
+						configuration.getLearningRate());
+				network.setTrainingSchedule(roundSchedule);
+				benchmark = network.teach(shots);
+			} else {
+				network.setTrainingSchedule(roundSchedule);
+				benchmark = network.continueTeaching();
+			}
+
+			epochs += benchmark.getIterations();
+			wallTime += System.currentTimeMillis() - start;
+		}
+
+		/**
+		 * Returns the result of the candidate and frees its network.
+		 */
+		public Result getResult(boolean killed) {
+			network = null;
+			return new Result(configuration, benchmark, epochs, wallTime,
+					killed);
+		}
+	}
+}
@@ -0,0 +1,176 @@
+package GoalKeeperCheatSheet;
+
+/**
+ * This class encodes a PenaltyShot as a single number. Every attribute of a
+ * shot is categorical: run up length and direction have three levels, delay,
+ * fouled, place, own fan block and importance two, the spectators six and the
+ * target six (three X- times two Y-coordinates). The levels are combined in
+ * a mixed radix, so all 1728 combinations of the input parameters are coded
+ * by 0 to 1727 and all shots including the target by 0 to 10367, which fits
+ * into two bytes.
+ * 
+ * The code of a shot is (input code * NUM_OF_TARGETS + target), the target
+ * being (X-level * 2 + Y-level) like the targets of the
+ * GoalKeeperCheatSheetNeuronalNetwork.
+ */
+public class PenaltyShotEncoding {
+	public static final int NUM_OF_INPUT_CODES = 1728;
+	public static final int NUM_OF_TARGETS = 6;
+	public static final int NUM_OF_CODES = NUM_OF_INPUT_CODES * NUM_OF_TARGETS;
+
+	// The number of levels of each input parameter, in the order of the
+	// network's input nodes
+	private static final int[] RADICES = { 3, 3, 2, 2, 2, 2, 2, 6 };
+
+	// The normalized values of the levels, see PenaltyShotImporter
+	private static final double[] THREE_LEVELS = { 0.0, 0.5, 1.0 };
+	private static final double[] TWO_LEVELS = { 0.0, 1.0 };
+	private static final double[] SIX_LEVELS = { 0.0, 0.2, 0.4, 0.6, 0.8, 1.0 };
+	private static final double[][] LEVELS = { THREE_LEVELS, THREE_LEVELS,
+			TWO_LEVELS, TWO_LEVELS, TWO_LEVELS, TWO_LEVELS, TWO_LEVELS,
+			SIX_LEVELS };
+
+	/**
+	 * Encodes the input parameters of a shot.
+	 * 
+	 * @param features
+	 *            The array holding the normalized input parameters.
+	 * @param offset
+	 *            The index of the first input parameter.
+	 * @return The input code [0<=code<NUM_OF_INPUT_CODES] or -1 if a
+	 *         parameter is not one of its normalized levels.
+	 */
+	public static int encodeInput(double[] features, int offset) {
+		int code = 0;
+		for (int i = 0; i < RADICES.length; i++) {
+			int level = getLevel(LEVELS[i], features[offset + i]);
+			if (level < 0) {
+				return -1;
+			}
+			code = code * RADICES[i] + level;
+		}
+		return code;
+	}
+
+	/**
+	 * Encodes the input parameters of a PenaltyShot.
+	 * 
+	 * @return The input code [0<=code<NUM_OF_INPUT_CODES] or -1 if a
+	 *         parameter is not one of its normalized levels.
+	 */
+	public static int encodeInput(PenaltyShot shot) {
+		int code = getLevel(THREE_LEVELS, shot.getRunUpLength());
+		code = append(code,
+				getLevel(THREE_LEVELS, shot.getRunUpDirection()), 3);
+		code = append(code, getLevel(TWO_LEVELS, shot.getDelay()), 2);
+		code = append(code, getLevel(TWO_LEVELS, shot.getFouled()), 2);
+		code = append(code, getLevel(TWO_LEVELS, shot.getPlace()), 2);
+		code = append(code, getLevel(TWO_LEVELS, shot.getOwnFanBlock()), 2);
+		code = append(code, getLevel(TWO_LEVELS, shot.getImportance()), 2);
+		code = append(code, getLevel(SIX_LEVELS, shot.getSpectators()), 6);
+		return code;
+	}
+
+	/**
+	 * Decodes the input parameters of a shot.
+	 * 
+	 * @param code
+	 *            The input code. [0<=code<NUM_OF_INPUT_CODES]
+	 * @param features
+	 *            The array the normalized input parameters are written to.
+	 * @param offset
+	 *            The index of the first input parameter.
+	 */
+	public static void decodeInput(int code, double[] features, int offset) {
+		for (int i = RADICES.length - 1; i >= 0; i--) {
+			features[offset + i] = LEVELS[i][code % RADICES[i]];
+			code /= RADICES[i];
+		}
+	}
+
+	/**
+	 * Encodes the target of a shot.
+	 * 
+	 * @param x
+	 *            The normalized X-coordinate. (0.0, 0.5 or 1.0)
+	 * @param y
+	 *            The normalized Y-coordinate. (0.0 or 1.0)
+	 * @return The target [0<=target<NUM_OF_TARGETS] or -1 if a coordinate is
+	 *         not one of its normalized levels.
+	 */
+	public static int encodeTarget(double x, double y) {
+		int xLevel = getLevel(THREE_LEVELS, x);
+		int yLevel = getLevel(TWO_LEVELS, y);
+		if ((xLevel < 0) || (yLevel < 0)) {
+			return -1;
+		}
+		return xLevel * 2 + yLevel;
+	}
+
+	/**
+	 * Decodes the target of a shot.
+	 * 
+	 * @param target
+	 *            The target. [0<=target<NUM_OF_TARGETS]
+	 * @param targets
+	 *            The array the normalized X- and Y-coordinate are written to.
+	 * @param offset
+	 *            The index of the X-coordinate.
+	 */
+	public static void decodeTarget(int target, double[] targets, int offset) {
+		targets[offset] = THREE_LEVELS[target / 2];
+		targets[offset + 1] = TWO_LEVELS[target % 2];
+	}
+
+	/**
+	 * Encodes a whole shot.
+	 * 
+	 * @return The code [0<=code<NUM_OF_CODES] or -1 if a value is not one of
+	 *         its normalized levels.
+	 */
+	public static int encode(double[] features, int featuresOffset,
+			double[] targets, int targetsOffset) {
+		int input = encodeInput(features, featuresOffset);
+		int target = encodeTarget(targets[targetsOffset],
+				targets[targetsOffset + 1]);
+		if ((input < 0) || (target < 0)) {
+			return -1;
+		}
+		return input * NUM_OF_TARGETS + target;
+	}
+
+	/**
+	 * Decodes a whole shot.
+	 * 
+	 * @param code
+	 *            The code. [0<=code<NUM_OF_CODES]
+	 */
+	public static void decode(int code, double[] features, int featuresOffset,
+			double[] targets, int targetsOffset) {
+		decodeInput(code / NUM_OF_TARGETS, features, featuresOffset);
+		decodeTarget(code % NUM_OF_TARGETS, targets, targetsOffset);
+	}
+
+	/**
+	 * Appends a level to a code in the mixed radix, or returns -1 if either
+	 * of them is -1.
+	 */
+	private static int append(int code, int level, int radix) {
+		if ((code < 0) || (level < 0)) {
+			return -1;
+		}
+		return code * radix + level;
+	}
+
+	/**
+	 * Returns the index of a normalized value within its levels or -1.
+	 */
+	private static int getLevel(double[] levels, double value) {
+		for (int i = 0; i < levels.length; i++) {
+			if (levels[i] == value) {
+				return i;
+			}
+		}
+		return -1;
+	}
+}
@@ -1,11 +1,20 @@
 package GoalKeeperCheatSheet;
 
-import java.io.BufferedReader;
 import java.io.File;
-import java.io.FileReader;
 import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import FeedForwardNetwork.TrainingSet;
 
 /**
  * This class imports the PenealtyShots from a csv formatted file and converts
@@ -17,10 +26,16 @@ import java.util.List;
  * |mittel|lang;vonLinks|mitte|vonRechts;ja|nein;ja|nein;auswaerts|heimspiel;
  * vorGegner|vorFans;ja|nein;int
  * 
+ * Files are parsed by a PenaltyShotParser, which tokenizes the memory-mapped
+ * bytes of the file without creating Strings. All methods are reentrant and
+ * may be called by several threads at once. processFiles() parses several
+ * files, and large files in chunks of whole lines, in parallel.
  */
 public class PenaltyShotImporter {
+	public static final int CHUNK_SIZE = 8 * 1024 * 1024;
 
-	private static List<PenaltyShot> shots;
+	// The result of the last processFile(File), only kept for getShots()
+	private static volatile List<PenaltyShot> shots;
 
 	/**
 	 * Processes a csv file to import and convert the PenaltyShots contained in
@@ -33,18 +48,120 @@ public class PenaltyShotImporter {
 	 *             If the training data file could not be read
 	 */
 	public static List<PenaltyShot> processFile(File file) throws IOException {
-		BufferedReader reader = new BufferedReader(new FileReader(file));
-		shots = new ArrayList<PenaltyShot>();
-
-		String line;
-		while (((line = reader.readLine()) != null)) {
-			PenaltyShot shot = getShot(line);
-			if (shot != null) {
-				shots.add(shot);
+		final List<PenaltyShot> result = new ArrayList<PenaltyShot>();
+
+		new PenaltyShotParser(new PenaltyShotParser.Consumer() {
+			public void accept(double[] features, double[] targets) {
+				result.add(new PenaltyShot(features[0], features[1],
+						features[2], features[3], features[4], features[5],
+						features[6], features[7], targets[0], targets[1]));
 			}
+		}).parse(file);
+
+		shots = result;
+		return result;
+	}
+
+	/**
+	 * Processes a csv file and appends the contained PenaltyShots to a set of
+	 * training records, without creating a PenaltyShot for every record. The
+	 * record layout is the one of the GoalKeeperCheatSheetNeuronalNetwork's
+	 * input and teaching vectors.
+	 * 
+	 * @param file
+	 *            the file containing PenaltyShot formatted in csv
+	 * @param records
+	 *            the training set the records are appended to, e.g. created
+	 *            by GoalKeeperCheatSheetNeuronalNetwork.createTrainingSet()
+	 * @return the number of appended records
+	 * @throws IOException
+	 *             If the training data file could not be read
+	 */
+	public static int processFile(File file, TrainingSet records)
+			throws IOException {
+		return new PenaltyShotParser(new TrainingSetConsumer(records))
+				.parse(file);
+	}
+
+	/**
+	 * Processes several csv files in parallel, using one thread per available
+	 * processor, see processFiles(ExecutorService, File...).
+	 * 
+	 * @param files
+	 *            the files containing PenaltyShots formatted in csv
+	 * @return the imported training records
+	 * @throws IOException
+	 *             If a training data file could not be read
+	 */
+	public static TrainingSet processFiles(File... files) throws IOException {
+		ExecutorService executor = Executors.newFixedThreadPool(Runtime
+				.getRuntime().availableProcessors());
+		try {
+			return processFiles(executor, files);
+		} finally {
+			executor.shutdown();
 		}
+	}
 
-		return shots;
+	/**
+	 * Processes several csv files in parallel. Every file is split into
+	 * chunks of about CHUNK_SIZE bytes ending at line breaks, which are parsed
+	 * as separate tasks of the executor. The records are merged in the order
+	 * of the files and of the lines within each file, so the result is the
+	 * same as importing the files one after another.
+	 * 
+	 * @param executor
+	 *            the executor parsing the chunks
+	 * @param files
+	 *            the files containing PenaltyShots formatted in csv
+	 * @return the imported training records
+	 * @throws IOException
+	 *             If a training data file could not be read
+	 */
+	public static TrainingSet processFiles(ExecutorService executor,
+			File... files) throws IOException {
+		List<Future<TrainingSet>> chunks = new ArrayList<Future<TrainingSet>>();
+
+		for (File file : files) {
+			RandomAccessFile input = new RandomAccessFile(file, "r");
+			try {
+				long size = input.getChannel().size();
+				long start = 0;
+				while (start < size) {
+					long end = start + CHUNK_SIZE < size ? PenaltyShotParser
+							.skipLine(input.getChannel(), start + CHUNK_SIZE,
+									size) : size;
+					chunks.add(executor.submit(new Chunk(file, start, end)));
+					start = end;
+				}
+			} finally {
+				input.close();
+			}
+		}
+
+		TrainingSet records = GoalKeeperCheatSheetNeuronalNetwork
+				.createTrainingSet();
+		try {
+			for (Future<TrainingSet> chunk : chunks) {
+				records.addAll(chunk.get());
+			}
+		} catch (InterruptedException e) {
+			for (Future<TrainingSet> chunk : chunks) {
+				chunk.cancel(true);
+			}
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException();
+		} catch (ExecutionException e) {
+			for (Future<TrainingSet> chunk : chunks) {
+				chunk.cancel(true);
+			}
+			if (e.getCause() instanceof IOException) {
+				throw (IOException) e.getCause();
+			}
+			throw new RuntimeException(e.getCause());
+		}
+
+		return records;
 	}
 
 	/**
@@ -106,9 +223,10 @@ public class PenaltyShotImporter {
 	public static Double getTargetY(String string) {
 
 		Double result = null;
-		if (string.toLowerCase().contains("unten")) {
+		String lowerCase = string.toLowerCase();
+		if (lowerCase.contains("unten")) {
 			result = 0.0;
-		} else if (string.toLowerCase().contains("oben")) {
+		} else if (lowerCase.contains("oben")) {
 			result = 1.0;
 		}
 		return result;
@@ -127,11 +245,12 @@ public class PenaltyShotImporter {
 	public static Double getTargetX(String string) {
 
 		Double result = null;
-		if (string.toLowerCase().contains("links")) {
+		String lowerCase = string.toLowerCase();
+		if (lowerCase.contains("links")) {
 			result = 0.0;
-		} else if (string.toLowerCase().contains("mitte")) {
+		} else if (lowerCase.contains("mitte")) {
 			result = 0.5;
-		} else if (string.toLowerCase().contains("rechts")) {
+		} else if (lowerCase.contains("rechts")) {
 			result = 1.0;
 		}
 		return result;
@@ -153,18 +272,10 @@ public class PenaltyShotImporter {
 
 		Double result = null;
 		try {
-			if (Double.parseDouble(string) <= 15412) {
-				result = 0.0;
-			} else if (Double.parseDouble(string) <= 21333.25) {
-				result = 0.2;
-			} else if (Double.parseDouble(string) <= 28011.5) {
-				result = 0.4;
-			} else if (Double.parseDouble(string) <= 31978) {
-				result = 0.6;
-			} else if (Double.parseDouble(string) <= 39285) {
-				result = 0.8;
-			} else if (Double.parseDouble(string) > 39285) {
-				result = 1.0;
+			double spectators = PenaltyShotParser.getSpectators(Double
+					.parseDouble(string));
+			if (!Double.isNaN(spectators)) {
+				result = spectators;
 			}
 		} catch (Exception e) {
 			result = null;
@@ -316,11 +427,78 @@ public class PenaltyShotImporter {
 	}
 
 	/**
-	 * Returns the list of penalty shots.
+	 * Returns the list of penalty shots imported by the last call of
+	 * processFile(File).
 	 * 
 	 * @return The list of penalty shots.
+	 * @deprecated The list is shared by all importers and replaced by every
+	 *             import, also by concurrent ones. Use the list returned by
+	 *             processFile(File) instead.
 	 */
+	@Deprecated
 	public List<PenaltyShot> getShots() {
 		return shots;
 	}
+
+	/**
+	 * Appends the parsed shots to a set of training records.
+	 */
+	private static class TrainingSetConsumer implements
+			PenaltyShotParser.Consumer {
+		private final TrainingSet records;
+
+		public TrainingSetConsumer(TrainingSet records) {
+			this.records = records;
+		}
+
+		public void accept(double[] features, double[] targets) {
+			int record = records.add();
+			for (int i = 0; i < features.length; i++) {
+				records.setFeature(record, i, features[i]);
+			}
+			for (int i = 0; i < targets.length; i++) {
+				records.setTarget(record, i, targets[i]);
+			}
+		}
+	}
+
+	/**
+	 * Parses the lines within a range of a file into its own set of training
+	 * records.
+	 */
+	private static class Chunk implements Callable<TrainingSet> {
+		private final File file;
+		private final long start;
+		private final long end;
+
+		public Chunk(File file, long start, long end) {
+			this.file = file;
+			this.start = start;
+			this.end = end;
+		}
+
+		public TrainingSet call() throws IOException {
+			TrainingSet records = GoalKeeperCheatSheetNeuronalNetwork
+					.createTrainingSet();
+			PenaltyShotParser parser = new PenaltyShotParser(
+					new TrainingSetConsumer(records));
+			long startTime = System.nanoTime();
+			RandomAccessFile input = new RandomAccessFile(file, "r");
+			try {
+				ByteBuffer buffer = input.getChannel().map(
+						FileChannel.MapMode.READ_ONLY, start, end - start);
+				parser.parse(buffer, 0, (int) (end - start));
+			} finally {
+				input.close();
+			}
+
+			Trace.Sink trace = Trace.getSink();
+			if (trace != null) {
+				trace.importFinished(file.getPath() + "[" + start + "-" + end
+						+ "]", parser.getNumOfRows(), parser.getNumOfBytes(),
+						parser.getNumOfRejects(), System.nanoTime() - startTime);
+			}
+			return records;
+		}
+	}
 }
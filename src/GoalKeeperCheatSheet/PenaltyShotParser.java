@@ -0,0 +1,492 @@
+package GoalKeeperCheatSheet;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * This class parses PenaltyShots from a csv formatted file, see
+ * PenaltyShotImporter for the layout. The file is memory-mapped and its bytes
+ * are tokenized in place: categorical tokens are compared byte by byte and
+ * the spectators are parsed without creating any String. Each valid line is
+ * emitted to a Consumer as soon as it is parsed.
+ * 
+ * Large files are mapped in windows of WINDOW_SIZE bytes, so the memory used
+ * does not depend on the size of the file.
+ * 
+ * A parser must not be used by several threads at once, but any number of
+ * parsers may run concurrently.
+ */
+public class PenaltyShotParser {
+	public static final int WINDOW_SIZE = 64 * 1024 * 1024;
+
+	/**
+	 * Receives the parsed PenaltyShots.
+	 */
+	public interface Consumer {
+		/**
+		 * Is called for every valid line.
+		 * 
+		 * @param features
+		 *            The normalized input parameters of the shot, in the
+		 *            order of the GoalKeeperCheatSheetNeuronalNetwork's input
+		 *            nodes. The array is reused for the following lines.
+		 * @param targets
+		 *            The normalized X- and Y-coordinate of the target. The
+		 *            array is reused for the following lines.
+		 */
+		void accept(double[] features, double[] targets);
+	}
+
+	private static final byte[] HEADER = ascii("Anlauflaenge;Richtung;Verzoegerung;gefoult;Ort;Kurve;Wichtig;Zuschauer;Ziel");
+	private static final byte[] KURZ = ascii("kurz");
+	private static final byte[] MITTEL = ascii("mittel");
+	private static final byte[] LANG = ascii("lang");
+	private static final byte[] VON_LINKS = ascii("vonLinks");
+	private static final byte[] MITTE = ascii("mitte");
+	private static final byte[] VON_RECHTS = ascii("vonRechts");
+	private static final byte[] NEIN = ascii("nein");
+	private static final byte[] JA = ascii("ja");
+	private static final byte[] HEIMSPIEL = ascii("Heimspiel");
+	private static final byte[] AUSWAERTS = ascii("Auswaerts");
+	private static final byte[] VOR_FANS = ascii("vorFans");
+	private static final byte[] VOR_GEGER = ascii("vorGeger");
+	private static final byte[] LINKS = ascii("links");
+	private static final byte[] RECHTS = ascii("rechts");
+	private static final byte[] UNTEN = ascii("unten");
+	private static final byte[] OBEN = ascii("oben");
+
+	private static final int NUM_OF_COLUMNS = 9;
+
+	// The largest number of digits parsed without Double.parseDouble, every
+	// long below 10^15 and every power of ten up to 10^15 is exact as double
+	private static final int MAX_FAST_DIGITS = 15;
+	private static final double[] POWERS_OF_TEN = { 1E0, 1E1, 1E2, 1E3, 1E4,
+			1E5, 1E6, 1E7, 1E8, 1E9, 1E10, 1E11, 1E12, 1E13, 1E14, 1E15 };
+
+	private final Consumer consumer;
+
+	// The rows handed to the consumer, reused for every line
+	private final double[] features = new double[GoalKeeperCheatSheetNeuronalNetwork.NUM_OF_INPUT_NODES];
+	private final double[] targets = new double[GoalKeeperCheatSheetNeuronalNetwork.NUM_OF_OUTPUT_NODES];
+
+	// The start and end index of each column of the current line
+	private final int[] columnStart = new int[NUM_OF_COLUMNS];
+	private final int[] columnEnd = new int[NUM_OF_COLUMNS];
+
+	private int numOfRows;
+	private int numOfRejects;
+	private long numOfBytes;
+
+	/**
+	 * Creates a new parser.
+	 * 
+	 * @param consumer
+	 *            The consumer receiving the parsed shots.
+	 */
+	public PenaltyShotParser(Consumer consumer) {
+		this.consumer = consumer;
+	}
+
+	/**
+	 * Parses a csv file and emits all valid lines to the consumer.
+	 * 
+	 * @param file
+	 *            the file containing PenaltyShots formatted in csv
+	 * @return the number of emitted shots
+	 * @throws IOException
+	 *             If the file could not be read
+	 */
+	public int parse(File file) throws IOException {
+		RandomAccessFile input = new RandomAccessFile(file, "r");
+		int start = numOfRows;
+		int startRejects = numOfRejects;
+		long startBytes = numOfBytes;
+		long startTime = System.nanoTime();
+
+		try {
+			FileChannel channel = input.getChannel();
+			long size = channel.size();
+			long position = 0;
+
+			while (position < size) {
+				int length = (int) Math.min(WINDOW_SIZE, size - position);
+				boolean last = position + length == size;
+				ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY,
+						position, length);
+
+				int parsed = parseLines(buffer, 0, length, last);
+				if (parsed > 0) {
+					position += parsed;
+				} else {
+					// A single line is longer than a window, it is skipped
+					numOfRejects++;
+					position = skipLine(channel, position, size);
+				}
+			}
+			numOfBytes += size;
+		} finally {
+			input.close();
+		}
+
+		Trace.Sink trace = Trace.getSink();
+		if (trace != null) {
+			trace.importFinished(file.getPath(), numOfRows - start,
+					numOfBytes - startBytes, numOfRejects - startRejects,
+					System.nanoTime() - startTime);
+		}
+
+		return numOfRows - start;
+	}
+
+	/**
+	 * Parses the csv formatted lines within a range of a buffer and emits all
+	 * valid lines to the consumer. The range must end at the end of a line.
+	 * 
+	 * @param buffer
+	 *            The buffer holding the lines, its position is not changed.
+	 * @param start
+	 *            The index of the first byte of the first line.
+	 * @param end
+	 *            The index after the last byte of the last line.
+	 * @return The number of emitted shots.
+	 */
+	public int parse(ByteBuffer buffer, int start, int end) {
+		int rows = numOfRows;
+		parseLines(buffer, start, end, true);
+		numOfBytes += end - start;
+		return numOfRows - rows;
+	}
+
+	/**
+	 * Returns the number of shots emitted so far.
+	 */
+	public int getNumOfRows() {
+		return numOfRows;
+	}
+
+	/**
+	 * Returns the number of invalid lines skipped so far.
+	 */
+	public int getNumOfRejects() {
+		return numOfRejects;
+	}
+
+	/**
+	 * Returns the number of bytes parsed so far.
+	 */
+	public long getNumOfBytes() {
+		return numOfBytes;
+	}
+
+	/**
+	 * Parses all complete lines within a range of a buffer.
+	 * 
+	 * @param last
+	 *            If the range ends at the end of the file, so that its last
+	 *            line is complete even without a line break.
+	 * @return The number of bytes parsed, i.e. the index after the last
+	 *         complete line relative to start.
+	 */
+	private int parseLines(ByteBuffer buffer, int start, int end, boolean last) {
+		int lineStart = start;
+
+		for (int i = start; i < end; i++) {
+			if (buffer.get(i) == '\n') {
+				parseLine(buffer, lineStart, i);
+				lineStart = i + 1;
+			}
+		}
+		if (last && (lineStart < end)) {
+			parseLine(buffer, lineStart, end);
+			lineStart = end;
+		}
+
+		return lineStart - start;
+	}
+
+	/**
+	 * Skips the line starting at the given position of a file.
+	 * 
+	 * @return The position of the following line or the size of the file if
+	 *         there is none.
+	 */
+	static long skipLine(FileChannel channel, long position,
+			long size) throws IOException {
+		while (position < size) {
+			int length = (int) Math.min(WINDOW_SIZE, size - position);
+			ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY,
+					position, length);
+			for (int i = 0; i < length; i++) {
+				if (buffer.get(i) == '\n') {
+					return position + i + 1;
+				}
+			}
+			position += length;
+		}
+		return size;
+	}
+
+	/**
+	 * Parses a single line and emits it to the consumer if it is valid.
+	 * 
+	 * @param start
+	 *            The index of the first byte of the line.
+	 * @param end
+	 *            The index of the line break ending the line.
+	 */
+	private void parseLine(ByteBuffer buffer, int start, int end) {
+		if ((end > start) && (buffer.get(end - 1) == '\r')) {
+			end--;
+		}
+		if (equals(buffer, start, end, HEADER) || (start == end)) {
+			return;
+		}
+
+		// Split the line into its columns, further columns are ignored
+		int numOfColumns = 0;
+		int columnBegin = start;
+		for (int i = start; i <= end; i++) {
+			if ((i == end) || (buffer.get(i) == ';')) {
+				if (numOfColumns < NUM_OF_COLUMNS) {
+					columnStart[numOfColumns] = columnBegin;
+					columnEnd[numOfColumns] = i;
+				}
+				numOfColumns++;
+				columnBegin = i + 1;
+			}
+		}
+
+		if (numOfColumns != NUM_OF_COLUMNS) {
+			System.out
+					.println("Invalid data record (incorrect number of columns): "
+							+ toString(buffer, start, end));
+		}
+
+		if ((numOfColumns < NUM_OF_COLUMNS) || !parseColumns(buffer)) {
+			System.out.println("Invalid data record (invalid data): "
+					+ toString(buffer, start, end));
+			numOfRejects++;
+			return;
+		}
+
+		numOfRows++;
+		consumer.accept(features, targets);
+	}
+
+	/**
+	 * Converts the columns of the current line into the features and targets.
+	 * 
+	 * @return False if a column holds an invalid value.
+	 */
+	private boolean parseColumns(ByteBuffer buffer) {
+		features[0] = match(buffer, 0, KURZ, MITTEL, LANG);
+		features[1] = match(buffer, 1, VON_LINKS, MITTE, VON_RECHTS);
+		features[2] = match(buffer, 2, NEIN, JA);
+		features[3] = match(buffer, 3, NEIN, JA);
+		features[4] = match(buffer, 4, HEIMSPIEL, AUSWAERTS);
+		features[5] = match(buffer, 5, VOR_FANS, VOR_GEGER);
+		features[6] = match(buffer, 6, NEIN, JA);
+		features[7] = getSpectators(parseNumber(buffer, columnStart[7],
+				columnEnd[7]));
+
+		// The target is matched like PenaltyShotImporter.getTargetX/Y()
+		int start = columnStart[8];
+		int end = columnEnd[8];
+		if (contains(buffer, start, end, LINKS)) {
+			targets[0] = 0.0;
+		} else if (contains(buffer, start, end, MITTE)) {
+			targets[0] = 0.5;
+		} else if (contains(buffer, start, end, RECHTS)) {
+			targets[0] = 1.0;
+		} else {
+			return false;
+		}
+		if (contains(buffer, start, end, UNTEN)) {
+			targets[1] = 0.0;
+		} else if (contains(buffer, start, end, OBEN)) {
+			targets[1] = 1.0;
+		} else {
+			return false;
+		}
+
+		for (int i = 0; i < features.length; i++) {
+			if (Double.isNaN(features[i])) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Matches a column against two levels.
+	 * 
+	 * @return 0.0 for the first level, 1.0 for the second and NaN for none.
+	 */
+	private double match(ByteBuffer buffer, int column, byte[] level0,
+			byte[] level1) {
+		int start = columnStart[column];
+		int end = columnEnd[column];
+		if (equals(buffer, start, end, level0)) {
+			return 0.0;
+		} else if (equals(buffer, start, end, level1)) {
+			return 1.0;
+		}
+		return Double.NaN;
+	}
+
+	/**
+	 * Matches a column against three levels.
+	 * 
+	 * @return 0.0 for the first level, 0.5 for the second, 1.0 for the third
+	 *         and NaN for none.
+	 */
+	private double match(ByteBuffer buffer, int column, byte[] level0,
+			byte[] level05, byte[] level1) {
+		int start = columnStart[column];
+		int end = columnEnd[column];
+		if (equals(buffer, start, end, level0)) {
+			return 0.0;
+		} else if (equals(buffer, start, end, level05)) {
+			return 0.5;
+		} else if (equals(buffer, start, end, level1)) {
+			return 1.0;
+		}
+		return Double.NaN;
+	}
+
+	/**
+	 * Converts a number of spectators like
+	 * PenaltyShotImporter.getSpectators().
+	 * 
+	 * @return The normalized spectators or NaN if the number is NaN.
+	 */
+	static double getSpectators(double spectators) {
+		if (spectators <= 15412) {
+			return 0.0;
+		} else if (spectators <= 21333.25) {
+			return 0.2;
+		} else if (spectators <= 28011.5) {
+			return 0.4;
+		} else if (spectators <= 31978) {
+			return 0.6;
+		} else if (spectators <= 39285) {
+			return 0.8;
+		} else if (spectators > 39285) {
+			return 1.0;
+		}
+		return Double.NaN;
+	}
+
+	/**
+	 * Parses a decimal number. Plain numbers with at most MAX_FAST_DIGITS
+	 * digits are parsed in place, their value is exactly the one of
+	 * Double.parseDouble(). Any other syntax is left to Double.parseDouble().
+	 * 
+	 * @return The number or NaN if the range holds no number.
+	 */
+	private static double parseNumber(ByteBuffer buffer, int start, int end) {
+		int i = start;
+		boolean negative = false;
+		if ((i < end) && ((buffer.get(i) == '-') || (buffer.get(i) == '+'))) {
+			negative = buffer.get(i) == '-';
+			i++;
+		}
+
+		long mantissa = 0;
+		int digits = 0;
+		int fractionDigits = -1;
+		for (; i < end; i++) {
+			byte b = buffer.get(i);
+			if ((b >= '0') && (b <= '9')) {
+				mantissa = mantissa * 10 + (b - '0');
+				digits++;
+				if (fractionDigits >= 0) {
+					fractionDigits++;
+				}
+			} else if ((b == '.') && (fractionDigits < 0)) {
+				fractionDigits = 0;
+			} else {
+				break;
+			}
+		}
+
+		if ((i == end) && (digits > 0) && (digits <= MAX_FAST_DIGITS)) {
+			double value = fractionDigits > 0 ? mantissa
+					/ POWERS_OF_TEN[fractionDigits] : mantissa;
+			return negative ? -value : value;
+		}
+
+		// Exponents, whitespace, "NaN", "Infinity" etc.
+		try {
+			return Double.parseDouble(toString(buffer, start, end));
+		} catch (NumberFormatException e) {
+			return Double.NaN;
+		}
+	}
+
+	/**
+	 * Returns if a range of a buffer holds exactly the given bytes.
+	 */
+	private static boolean equals(ByteBuffer buffer, int start, int end,
+			byte[] token) {
+		if (end - start != token.length) {
+			return false;
+		}
+		for (int i = 0; i < token.length; i++) {
+			if (buffer.get(start + i) != token[i]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Returns if a range of a buffer contains the given lower case bytes,
+	 * ignoring the case of ASCII letters.
+	 */
+	private static boolean contains(ByteBuffer buffer, int start, int end,
+			byte[] token) {
+		for (int i = start; i <= end - token.length; i++) {
+			int j = 0;
+			while ((j < token.length)
+					&& (toLowerCase(buffer.get(i + j)) == token[j])) {
+				j++;
+			}
+			if (j == token.length) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private static byte toLowerCase(byte b) {
+		return (b >= 'A') && (b <= 'Z') ? (byte) (b + ('a' - 'A')) : b;
+	}
+
+	/**
+	 * Decodes a range of a buffer, only used for invalid lines and unusual
+	 * numbers.
+	 */
+	private static String toString(ByteBuffer buffer, int start, int end) {
+		byte[] bytes = new byte[end - start];
+		for (int i = 0; i < bytes.length; i++) {
+			bytes[i] = buffer.get(start + i);
+		}
+		try {
+			return new String(bytes, "UTF-8");
+		} catch (IOException e) {
+			return new String(bytes);
+		}
+	}
+
+	private static byte[] ascii(String string) {
+		byte[] bytes = new byte[string.length()];
+		for (int i = 0; i < bytes.length; i++) {
+			bytes[i] = (byte) string.charAt(i);
+		}
+		return bytes;
+	}
+}
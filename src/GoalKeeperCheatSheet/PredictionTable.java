@@ -0,0 +1,85 @@
+package GoalKeeperCheatSheet;
+
+import FeedForwardNetwork.FeedForwardNetwork;
+
+/**
+ * This class holds the answers of a GoalKeeperCheatSheetNeuronalNetwork for
+ * all 1728 combinations of input parameters, indexed by their
+ * PenaltyShotEncoding input code. It is computed once from the network's
+ * current weights, so asking becomes a lookup without applying the network.
+ *
+ * A table never changes. It is valid as long as the network's version equals
+ * getVersion().
+ */
+public class PredictionTable {
+	private final int version;
+
+	// The index of the target within the network's targets, see
+	// GoalKeeperCheatSheetNeuronalNetwork.getTargetIndex()
+	private final byte[] targets;
+
+	// The raw outputs, NUM_OF_OUTPUT_NODES per input code
+	private final double[] outputs;
+
+	/**
+	 * Applies the network to all combinations of input parameters.
+	 *
+	 * @param network
+	 *            The network of a GoalKeeperCheatSheetNeuronalNetwork.
+	 */
+	PredictionTable(FeedForwardNetwork network) {
+		int numOfCodes = PenaltyShotEncoding.NUM_OF_INPUT_CODES;
+		int numOfOut = GoalKeeperCheatSheetNeuronalNetwork.NUM_OF_OUTPUT_NODES;
+
+		version = network.getVersion();
+		targets = new byte[numOfCodes];
+		outputs = new double[numOfCodes * numOfOut];
+
+		double[][] in = new double[numOfCodes][GoalKeeperCheatSheetNeuronalNetwork.NUM_OF_INPUT_NODES];
+		double[][] out = new double[numOfCodes][numOfOut];
+		for (int code = 0; code < numOfCodes; code++) {
+			PenaltyShotEncoding.decodeInput(code, in[code], 0);
+		}
+
+		network.applyBatch(in, out, network.createContext());
+
+		for (int code = 0; code < numOfCodes; code++) {
+			targets[code] = (byte) GoalKeeperCheatSheetNeuronalNetwork
+					.getTargetIndex(out[code][0], out[code][1]);
+			System.arraycopy(out[code], 0, outputs, code * numOfOut, numOfOut);
+		}
+	}
+
+	/**
+	 * Returns the version of the network the table was computed from.
+	 */
+	public int getVersion() {
+		return version;
+	}
+
+	/**
+	 * Returns the answer for a combination of input parameters.
+	 *
+	 * @param code
+	 *            The input code. [0<=code<NUM_OF_INPUT_CODES]
+	 * @return The index of the target, (x-coordinate * 2 + y-coordinate).
+	 */
+	public int getTarget(int code) {
+		return targets[code];
+	}
+
+	/**
+	 * Returns a raw output of the network for a combination of input
+	 * parameters.
+	 *
+	 * @param code
+	 *            The input code. [0<=code<NUM_OF_INPUT_CODES]
+	 * @param x
+	 *            The output node. [0<=x<NUM_OF_OUTPUT_NODES]
+	 * @return The output of the network.
+	 */
+	public double getOutput(int code, int x) {
+		return outputs[code
+				* GoalKeeperCheatSheetNeuronalNetwork.NUM_OF_OUTPUT_NODES + x];
+	}
+}
@@ -0,0 +1,60 @@
+package GoalKeeperCheatSheet;
+
+import java.io.PrintStream;
+
+import GoalKeeperCheatSheet.GoalKeeperCheatSheetNeuronalNetwork.BenchmarkTeaching;
+
+/**
+ * This listener prints the progress of teaching runs, every given number of
+ * epochs, and why a run ended.
+ */
+public class PrintStreamTrainingListener implements TrainingListener {
+	public static final int DEFAULT_INTERVAL = 1000;
+
+	private final PrintStream out;
+	private final int interval;
+
+	public PrintStreamTrainingListener(PrintStream out) {
+		this(out, DEFAULT_INTERVAL);
+	}
+
+	/**
+	 * Creates a new listener.
+	 * 
+	 * @param out
+	 *            The stream the progress is printed to, e.g. System.out.
+	 * @param interval
+	 *            The number of epochs between two printouts. [0<interval]
+	 */
+	public PrintStreamTrainingListener(PrintStream out, int interval) {
+		this.out = out;
+		this.interval = interval > 0 ? interval : DEFAULT_INTERVAL;
+	}
+
+	public void trainingStarted(int numOfRecords) {
+		out.printf("Starting:\n");
+	}
+
+	public void epochFinished(EpochMetrics metrics) {
+		if (metrics.getEpoch() % interval == 0)
+			out.printf("[%4d]>> Korrekte: %d Fehler : %f\n",
+					metrics.getEpoch(), metrics.getCorrectItems(),
+					metrics.getTotalError());
+	}
+
+	public void trainingFinished(StopReason reason, BenchmarkTeaching result) {
+		switch (reason) {
+		case MAX_EPOCHS:
+			out.println("Break due to too much iterations");
+			break;
+		case TIME_BUDGET:
+			out.println("Break due to exceeded time budget");
+			break;
+		case NO_IMPROVEMENT:
+			out.println("Break due to no more improvement");
+			break;
+		default:
+			break;
+		}
+	}
+}
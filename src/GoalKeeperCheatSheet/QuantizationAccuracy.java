@@ -0,0 +1,118 @@
+package GoalKeeperCheatSheet;
+
+import FeedForwardNetwork.QuantizedNetwork;
+import FeedForwardNetwork.TrainingSet;
+
+/**
+ * This class is a data object class containing the accuracy of a
+ * QuantizedNetwork compared to the GoalKeeperCheatSheetNeuronalNetwork it was
+ * quantized from, measured on a set of PenaltyShots.
+ */
+public class QuantizationAccuracy {
+	private final int numOfShots;
+	private final int numOfAgreements;
+	private final double maxOutputError;
+	private final double avgOutputError;
+	private final int quantizedSize;
+	private final int size;
+
+	private QuantizationAccuracy(int numOfShots, int numOfAgreements,
+			double maxOutputError, double avgOutputError, int quantizedSize,
+			int size) {
+		this.numOfShots = numOfShots;
+		this.numOfAgreements = numOfAgreements;
+		this.maxOutputError = maxOutputError;
+		this.avgOutputError = avgOutputError;
+		this.quantizedSize = quantizedSize;
+		this.size = size;
+	}
+
+	/**
+	 * Compares the answers of a quantized network to the ones of ask().
+	 * 
+	 * @param network
+	 *            The network the quantized network was quantized from.
+	 * @param quantized
+	 *            The quantized network.
+	 * @param shots
+	 *            The PenaltyShots to ask, e.g. imported by
+	 *            PenaltyShotImporter.processFile(File, TrainingSet).
+	 * @return The accuracy of the quantized network.
+	 */
+	public static QuantizationAccuracy measure(
+			GoalKeeperCheatSheetNeuronalNetwork network,
+			QuantizedNetwork quantized, TrainingSet shots) {
+		int numOfIn = GoalKeeperCheatSheetNeuronalNetwork.NUM_OF_INPUT_NODES;
+		int numOfOut = GoalKeeperCheatSheetNeuronalNetwork.NUM_OF_OUTPUT_NODES;
+		double[] features = shots.getFeatures();
+		double[] out = new double[numOfOut];
+		double[] exact = new double[numOfOut];
+		int numOfAgreements = 0;
+		double maxOutputError = 0;
+		double totalOutputError = 0;
+
+		for (int i = 0; i < shots.size(); i++) {
+			int offset = i * numOfIn;
+			PenaltyShot shot = new PenaltyShot(features[offset],
+					features[offset + 1], features[offset + 2],
+					features[offset + 3], features[offset + 4],
+					features[offset + 5], features[offset + 6],
+					features[offset + 7], 0, 0);
+
+			quantized.apply(features, offset, out);
+			String target = network.ask(shot, exact);
+
+			if (target.equals(GoalKeeperCheatSheetNeuronalNetwork.getTarget(
+					out[0], out[1]))) {
+				numOfAgreements++;
+			}
+			for (int j = 0; j < numOfOut; j++) {
+				double error = Math.abs(out[j] - exact[j]);
+				maxOutputError = Math.max(maxOutputError, error);
+				totalOutputError += error;
+			}
+		}
+
+		return new QuantizationAccuracy(shots.size(), numOfAgreements,
+				maxOutputError, shots.size() > 0 ? totalOutputError
+						/ (shots.size() * numOfOut) : 0,
+				quantized.getSizeInBytes(), network.getSizeInBytes());
+	}
+
+	public int getNumOfShots() {
+		return numOfShots;
+	}
+
+	/**
+	 * Returns the number of shots the quantized network predicts the same
+	 * target for as ask().
+	 */
+	public int getNumOfAgreements() {
+		return numOfAgreements;
+	}
+
+	public double getMaxOutputError() {
+		return maxOutputError;
+	}
+
+	public double getAvgOutputError() {
+		return avgOutputError;
+	}
+
+	public int getQuantizedSize() {
+		return quantizedSize;
+	}
+
+	public int getSize() {
+		return size;
+	}
+
+	@Override
+	public String toString() {
+		return "QuantizationAccuracy [numOfShots=" + numOfShots
+				+ ", numOfAgreements=" + numOfAgreements
+				+ ", maxOutputError=" + maxOutputError + ", avgOutputError="
+				+ avgOutputError + ", quantizedSize=" + quantizedSize
+				+ ", size=" + size + "]";
+	}
+}
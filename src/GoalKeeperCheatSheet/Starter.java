@@ -2,47 +2,101 @@ package GoalKeeperCheatSheet;
 
 import java.io.File;
 import java.io.IOException;
-import java.util.List;
+import java.util.concurrent.Future;
 
+import GoalKeeperCheatSheet.GoalKeeperCheatSheetNeuronalNetwork.BenchmarkTeaching;
 import wbs.nn.PenaltyShotView;
 
-public class Starter implements Runnable {
-	
+public class Starter implements TrainingJob.Listener {
+
 	private PenaltyShotView penaltyShot;
-	private GoalKeeperCheatSheetNeuronalNetwork NN;
-	private File f;
-	
-	private Thread thread;
+	private Future<GoalKeeperCheatSheetNeuronalNetwork> future;
+	private int percent = -1;
 	
+	// the outcome of the job, replayed to a view attached later
+	private boolean done = false;
+	private boolean finished = false;
+
 	public Starter(PenaltyShotView penaltyShot, GoalKeeperCheatSheetNeuronalNetwork NN, File f) {
-		if(this.thread == null) 
-			this.thread = new Thread(this);
-		
-		this.penaltyShot = penaltyShot;
-		this.NN = NN;
-		this.f = f;
-		
-		this.thread.start();
+		this(penaltyShot, NN, f, null);
 	}
 
-	@Override
-	public void run() {
+	/**
+	 * Teaches the network with the shots of the given file as a TrainingJob
+	 * and saves the taught network to the model file, unless it is null. The
+	 * progress is shown by the view.
+	 *
+	 * @throws IllegalStateException
+	 *             If the network is already being taught.
+	 */
+	public Starter(PenaltyShotView penaltyShot, GoalKeeperCheatSheetNeuronalNetwork NN, File f, File modelFile) {
+		this.penaltyShot = penaltyShot;
 		penaltyShot.setProgressBar(0);
 		try {
-			List<PenaltyShot> shots = PenaltyShotImporter.processFile(f);
-			NN.teach(shots);
+			this.future = new TrainingJob(NN, f, modelFile, this).submit();
+		} catch (IllegalStateException e) {
+			penaltyShot.setProgressBar(1);
+			throw e;
+		}
+	}
+
+	/**
+	 * Shows the progress by another view, e.g. the view recreated after a
+	 * configuration change. The new view is brought to the current state of
+	 * the job.
+	 */
+	public synchronized void attach(PenaltyShotView penaltyShot) {
+		this.penaltyShot = penaltyShot;
+		if (!done) {
+			penaltyShot.setProgressBar(0);
+			if (percent >= 0) {
+				penaltyShot.setTeachingProgress(percent);
+			}
+		} else if (finished) {
 			penaltyShot.setAskAndConfig();
-		}catch (IOException e) {
-			e.printStackTrace();
-			penaltyShot.showError("IOException: File not found.");
 		}
+	}
+
+	/**
+	 * Stops teaching after the current epoch.
+	 */
+	public void cancel() {
+		future.cancel(true);
+	}
+
+	public boolean isDone() {
+		return future.isDone();
+	}
+
+	public synchronized void progressChanged(int percent, EpochMetrics metrics) {
+		// the view is only updated if the shown value changes
+		if (percent != this.percent) {
+			this.percent = percent;
+			penaltyShot.setTeachingProgress(percent);
+		}
+	}
+
+	public synchronized void jobFinished(BenchmarkTeaching result) {
+		done = true;
+		finished = true;
+		penaltyShot.setAskAndConfig();
 		penaltyShot.setProgressBar(1);
-		
-		try {
-			Thread.sleep(1000);
-		} catch (InterruptedException e) {
-			e.printStackTrace();
+	}
+
+	public synchronized void jobFailed(Exception e) {
+		done = true;
+		e.printStackTrace();
+		if (e instanceof IOException) {
+			penaltyShot.showError("IOException: File not found.");
+		} else {
+			penaltyShot.showError(e.toString());
 		}
+		penaltyShot.setProgressBar(1);
 	}
-	
+
+	public synchronized void jobCancelled() {
+		done = true;
+		penaltyShot.setProgressBar(1);
+	}
+
 }
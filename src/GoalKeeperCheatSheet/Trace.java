@@ -0,0 +1,87 @@
+package GoalKeeperCheatSheet;
+
+/**
+ * This class sends trace events of teaching runs, imports and predictions to
+ * a Sink, e.g. to forward them to a profiler or a log. Tracing is off until a
+ * sink is set; then every instrumented place costs a single read of the sink
+ * field.
+ * 
+ * The events are: one per epoch of a teaching run, one per imported file and
+ * the latency of every PREDICTION_SAMPLE_INTERVAL-th call of ask().
+ */
+public class Trace {
+	public static final int PREDICTION_SAMPLE_INTERVAL = 1024;
+
+	/**
+	 * Receives the trace events. The methods are called by the thread causing
+	 * the event, possibly by several threads at once, and should return
+	 * quickly.
+	 */
+	public interface Sink {
+		/**
+		 * Is called after every epoch of a teaching run.
+		 * 
+		 * @param metrics
+		 *            The metrics of the epoch, including its duration.
+		 */
+		void epoch(EpochMetrics metrics);
+
+		/**
+		 * Is called after a file has been imported.
+		 * 
+		 * @param source
+		 *            The imported file or files.
+		 * @param rows
+		 *            The number of imported shots.
+		 * @param bytes
+		 *            The number of read bytes.
+		 * @param rejects
+		 *            The number of invalid records skipped.
+		 * @param duration
+		 *            The duration of the import in nanoseconds.
+		 */
+		void importFinished(String source, int rows, long bytes, int rejects,
+				long duration);
+
+		/**
+		 * Is called for a sample of the predictions.
+		 * 
+		 * @param duration
+		 *            The duration of the prediction in nanoseconds.
+		 */
+		void prediction(long duration);
+	}
+
+	private static volatile Sink sink;
+
+	// counts the predictions for sampling; increments lost by concurrent
+	// callers only shift the samples
+	private static int predictions;
+
+	/**
+	 * Sets the sink receiving the trace events.
+	 * 
+	 * @param sink
+	 *            The sink or null to turn tracing off.
+	 */
+	public static void setSink(Sink sink) {
+		Trace.sink = sink;
+	}
+
+	/**
+	 * Returns the sink receiving the trace events.
+	 * 
+	 * @return The sink or null if tracing is off.
+	 */
+	public static Sink getSink() {
+		return sink;
+	}
+
+	/**
+	 * Returns if the current prediction is to be traced, true for every
+	 * PREDICTION_SAMPLE_INTERVAL-th call.
+	 */
+	static boolean samplePrediction() {
+		return (++predictions % PREDICTION_SAMPLE_INTERVAL) == 0;
+	}
+}
@@ -0,0 +1,297 @@
+package GoalKeeperCheatSheet;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import FeedForwardNetwork.TrainingSet;
+import GoalKeeperCheatSheet.GoalKeeperCheatSheetNeuronalNetwork.BenchmarkTeaching;
+
+/**
+ * This class teaches a GoalKeeperCheatSheetNeuronalNetwork in the background:
+ * it imports the shots of a training data file, csv or binary, teaches the
+ * network with them and saves the taught network to a model file.
+ *
+ * A job runs on an executor, by default on a single thread shared by all
+ * jobs, and is controlled by the Future returned by submit().
+ * Future.cancel(true) ends the teaching run after the current epoch; the
+ * network keeps the best weights found so far, but the model file is not
+ * written. A run which has already ended for another reason, e.g. because it
+ * has learned all records, is still saved. Only one job may teach a network at a time.
+ */
+public class TrainingJob {
+	/**
+	 * Receives the progress and the outcome of a job. The methods are called
+	 * by the thread running the job, except jobCancelled() for a job
+	 * cancelled before it started.
+	 */
+	public interface Listener {
+		/**
+		 * Is called after every epoch of the teaching run.
+		 *
+		 * @param percent
+		 *            The estimated progress of the run, never decreasing.
+		 *            [0<=percent<100]
+		 * @param metrics
+		 *            The metrics of the epoch, e.g. its average error.
+		 */
+		void progressChanged(int percent, EpochMetrics metrics);
+
+		/**
+		 * Is called when the network has been taught and saved.
+		 *
+		 * @param result
+		 *            The benchmarking object of the teaching run.
+		 */
+		void jobFinished(BenchmarkTeaching result);
+
+		/**
+		 * Is called when the training data could not be read or the network
+		 * could not be saved.
+		 */
+		void jobFailed(Exception e);
+
+		/**
+		 * Is called when the job has stopped after being cancelled.
+		 */
+		void jobCancelled();
+	}
+
+	private static ExecutorService sharedExecutor;
+
+	private final GoalKeeperCheatSheetNeuronalNetwork network;
+	private final File trainingData;
+	private final File modelFile;
+	private final Listener listener;
+
+	private Future<GoalKeeperCheatSheetNeuronalNetwork> future;
+
+	// Set by whichever comes first: the job starting or being cancelled
+	private final AtomicBoolean started = new AtomicBoolean();
+
+	/**
+	 * Creates a new job.
+	 *
+	 * @param network
+	 *            The network to teach.
+	 * @param trainingData
+	 *            The file containing the training records, in csv or, with
+	 *            the extension BinaryTrainingData.FILE_EXTENSION, in the
+	 *            binary format.
+	 * @param modelFile
+	 *            The file the taught network is saved to or null.
+	 * @param listener
+	 *            The listener receiving the progress or null.
+	 */
+	public TrainingJob(GoalKeeperCheatSheetNeuronalNetwork network,
+			File trainingData, File modelFile, Listener listener) {
+		this.network = network;
+		this.trainingData = trainingData;
+		this.modelFile = modelFile;
+		this.listener = listener != null ? listener : new Listener() {
+			public void progressChanged(int percent, EpochMetrics metrics) {
+			}
+
+			public void jobFinished(BenchmarkTeaching result) {
+			}
+
+			public void jobFailed(Exception e) {
+			}
+
+			public void jobCancelled() {
+			}
+		};
+	}
+
+	/**
+	 * Runs the job on the executor shared by all jobs.
+	 *
+	 * @see #submit(Executor)
+	 */
+	public Future<GoalKeeperCheatSheetNeuronalNetwork> submit() {
+		return submit(getSharedExecutor());
+	}
+
+	/**
+	 * Runs the job on an executor. A job can be submitted only once.
+	 *
+	 * @param executor
+	 *            The executor running the job.
+	 * @return The future of the taught network. Its get() throws an
+	 *         ExecutionException if the job failed.
+	 * @throws IllegalStateException
+	 *             If the job has already been submitted or another job is
+	 *             teaching the network.
+	 */
+	public synchronized Future<GoalKeeperCheatSheetNeuronalNetwork> submit(
+			Executor executor) {
+		if (future != null) {
+			throw new IllegalStateException("The job was already submitted");
+		}
+		if (!network.startJob()) {
+			throw new IllegalStateException(
+					"The network is already taught by another job");
+		}
+
+		FutureTask<GoalKeeperCheatSheetNeuronalNetwork> task =
+				new FutureTask<GoalKeeperCheatSheetNeuronalNetwork>(
+						new Callable<GoalKeeperCheatSheetNeuronalNetwork>() {
+							public GoalKeeperCheatSheetNeuronalNetwork call()
+									throws IOException {
+								return run();
+							}
+						}) {
+			@Override
+			protected void done() {
+				// A job cancelled before it started never runs
+				if (started.compareAndSet(false, true)) {
+					network.finishJob();
+					listener.jobCancelled();
+				}
+			}
+		};
+
+		try {
+			executor.execute(task);
+		} catch (RejectedExecutionException e) {
+			network.finishJob();
+			throw e;
+		}
+		future = task;
+		return task;
+	}
+
+	/**
+	 * Returns the future of a submitted job or null.
+	 */
+	public synchronized Future<GoalKeeperCheatSheetNeuronalNetwork> getFuture() {
+		return future;
+	}
+
+	private GoalKeeperCheatSheetNeuronalNetwork run() throws IOException {
+		if (!started.compareAndSet(false, true)) {
+			throw new CancellationException();
+		}
+
+		ProgressListener progress = new ProgressListener();
+		try {
+			TrainingSet shots = GoalKeeperCheatSheetNeuronalNetwork
+					.createTrainingSet();
+			if (trainingData.getName().endsWith(
+					BinaryTrainingData.FILE_EXTENSION)) {
+				BinaryTrainingData.load(trainingData, shots);
+			} else {
+				PenaltyShotImporter.processFile(trainingData, shots);
+			}
+
+			BenchmarkTeaching result = null;
+			if (!Thread.currentThread().isInterrupted()) {
+				network.addTrainingListener(progress);
+				try {
+					result = network.teach(shots);
+				} finally {
+					network.removeTrainingListener(progress);
+				}
+			}
+			if ((result == null) || progress.isCancelled()) {
+				listener.jobCancelled();
+				throw new CancellationException();
+			}
+
+			// A late interrupt would close the channel of the model file
+			boolean interrupted = Thread.interrupted();
+			try {
+				if (modelFile != null) {
+					network.save(modelFile);
+				}
+			} finally {
+				if (interrupted) {
+					Thread.currentThread().interrupt();
+				}
+			}
+			listener.jobFinished(result);
+			return network;
+		} catch (IOException e) {
+			// An interrupt closes the channel of a file being read
+			if (Thread.currentThread().isInterrupted()) {
+				listener.jobCancelled();
+				throw new CancellationException();
+			}
+			listener.jobFailed(e);
+			throw e;
+		} catch (RuntimeException e) {
+			if (!(e instanceof CancellationException)) {
+				listener.jobFailed(e);
+			}
+			throw e;
+		} finally {
+			network.finishJob();
+		}
+	}
+
+	private static synchronized ExecutorService getSharedExecutor() {
+		if (sharedExecutor == null) {
+			sharedExecutor = Executors
+					.newSingleThreadExecutor(new ThreadFactory() {
+						public Thread newThread(Runnable r) {
+							Thread thread = new Thread(r, "TrainingJob");
+							thread.setDaemon(true);
+							return thread;
+						}
+					});
+		}
+		return sharedExecutor;
+	}
+
+	/**
+	 * Estimates the progress of the teaching run by the share of correctly
+	 * classified records, as the run ends when all of them are, or by the
+	 * limits of the training schedule, whichever is further.
+	 */
+	private class ProgressListener implements TrainingListener {
+		private int percent;
+		private long startTime;
+		private StopReason reason;
+
+		public void trainingStarted(int numOfRecords) {
+			percent = 0;
+			startTime = System.currentTimeMillis();
+		}
+
+		public void epochFinished(EpochMetrics metrics) {
+			TrainingSchedule schedule = network.getTrainingSchedule();
+			long current = 100L * metrics.getCorrectItems()
+					/ Math.max(1, metrics.getNumOfRecords());
+			current = Math.max(current, 100L * metrics.getEpoch()
+					/ schedule.getMaxEpochs());
+			if (schedule.getTimeBudget() > 0) {
+				current = Math.max(current,
+						100 * (System.currentTimeMillis() - startTime)
+								/ schedule.getTimeBudget());
+			}
+			percent = (int) Math.max(percent, Math.min(current, 99));
+			listener.progressChanged(percent, metrics);
+		}
+
+		public void trainingFinished(StopReason reason,
+				BenchmarkTeaching result) {
+			this.reason = reason;
+		}
+
+		/**
+		 * Returns true if the teaching run was ended by cancelling the job.
+		 */
+		public boolean isCancelled() {
+			return reason == StopReason.CANCELLED;
+		}
+	}
+}
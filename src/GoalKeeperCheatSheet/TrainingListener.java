@@ -0,0 +1,55 @@
+package GoalKeeperCheatSheet;
+
+import GoalKeeperCheatSheet.GoalKeeperCheatSheetNeuronalNetwork.BenchmarkTeaching;
+
+/**
+ * Receives the progress of the teaching runs of a
+ * GoalKeeperCheatSheetNeuronalNetwork, see
+ * GoalKeeperCheatSheetNeuronalNetwork.addTrainingListener(). The methods are
+ * called by the thread teaching the network and should return quickly.
+ * Without any listener no metrics are collected at all.
+ */
+public interface TrainingListener {
+	/**
+	 * Why a teaching run ended.
+	 */
+	public enum StopReason {
+		/** All training records are correctly classified. */
+		LEARNED,
+		/** The maximum number of epochs of the schedule is reached. */
+		MAX_EPOCHS,
+		/** The time budget of the schedule is exceeded. */
+		TIME_BUDGET,
+		/** The total error did not improve within the schedule's patience. */
+		NO_IMPROVEMENT,
+		/** The teaching thread was interrupted, e.g. by cancelling a job. */
+		CANCELLED
+	}
+
+	/**
+	 * Is called when a teaching run starts.
+	 * 
+	 * @param numOfRecords
+	 *            The number of training records of the run.
+	 */
+	void trainingStarted(int numOfRecords);
+
+	/**
+	 * Is called after every epoch.
+	 * 
+	 * @param metrics
+	 *            The metrics of the epoch.
+	 */
+	void epochFinished(EpochMetrics metrics);
+
+	/**
+	 * Is called when a teaching run ends, after the best weights have been
+	 * restored.
+	 * 
+	 * @param reason
+	 *            Why the run ended.
+	 * @param result
+	 *            The benchmarking object returned by the run.
+	 */
+	void trainingFinished(StopReason reason, BenchmarkTeaching result);
+}
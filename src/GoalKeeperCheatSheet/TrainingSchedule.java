@@ -0,0 +1,91 @@
+package GoalKeeperCheatSheet;
+
+/**
+ * This class is a data object class. It bounds a teaching run of a
+ * GoalKeeperCheatSheetNeuronalNetwork, so that a run on hard training data
+ * ends in a predictable time. A run stops as soon as one of the limits is
+ * reached, and the network keeps the best weights found during the run.
+ */
+public class TrainingSchedule {
+	public static final int DEFAULT_MAX_EPOCHS = 5000;
+	public static final int DEFAULT_MAX_ITERATIONS_PER_RECORD = 1000;
+	public static final long DEFAULT_TIME_BUDGET = 0;
+	public static final int DEFAULT_PATIENCE = 0;
+	public static final double DEFAULT_MIN_IMPROVEMENT = 1E-4;
+
+	private final int maxEpochs;
+	private final int maxIterationsPerRecord;
+	private final long timeBudget;
+	private final int patience;
+	private final double minImprovement;
+
+	/**
+	 * Creates the default schedule: at most 5000 epochs and 1000
+	 * backpropagations per record and epoch, no time budget and no early
+	 * stopping.
+	 */
+	public TrainingSchedule() {
+		this(DEFAULT_MAX_EPOCHS, DEFAULT_MAX_ITERATIONS_PER_RECORD,
+				DEFAULT_TIME_BUDGET, DEFAULT_PATIENCE, DEFAULT_MIN_IMPROVEMENT);
+	}
+
+	/**
+	 * Creates a new schedule.
+	 * 
+	 * @param maxEpochs
+	 *            The maximum number of epochs. [0<epochs]
+	 * @param maxIterationsPerRecord
+	 *            The maximum number of backpropagations on a single record
+	 *            within one epoch, when teaching online. [0<iterations]
+	 * @param timeBudget
+	 *            The maximum wall-clock time of the run in milliseconds, 0 for
+	 *            no limit. It is checked after every record when teaching
+	 *            online, after every batch when teaching by mini-batches and
+	 *            after every epoch of a ParallelTrainer, so a run may exceed
+	 *            it by that much. [0<=time budget]
+	 * @param patience
+	 *            The number of epochs without an improvement of the total
+	 *            error by at least minImprovement, after which the run is
+	 *            stopped early. 0 disables early stopping. [0<=patience]
+	 * @param minImprovement
+	 *            The decrease of the total error counted as improvement.
+	 *            [0<=min improvement]
+	 */
+	public TrainingSchedule(int maxEpochs, int maxIterationsPerRecord,
+			long timeBudget, int patience, double minImprovement) {
+		this.maxEpochs = maxEpochs > 0 ? maxEpochs : DEFAULT_MAX_EPOCHS;
+		this.maxIterationsPerRecord = maxIterationsPerRecord > 0 ? maxIterationsPerRecord
+				: DEFAULT_MAX_ITERATIONS_PER_RECORD;
+		this.timeBudget = timeBudget > 0 ? timeBudget : 0;
+		this.patience = patience > 0 ? patience : 0;
+		this.minImprovement = minImprovement > 0 ? minImprovement : 0;
+	}
+
+	public int getMaxEpochs() {
+		return maxEpochs;
+	}
+
+	public int getMaxIterationsPerRecord() {
+		return maxIterationsPerRecord;
+	}
+
+	public long getTimeBudget() {
+		return timeBudget;
+	}
+
+	public int getPatience() {
+		return patience;
+	}
+
+	public double getMinImprovement() {
+		return minImprovement;
+	}
+
+	@Override
+	public String toString() {
+		return "TrainingSchedule [maxEpochs=" + maxEpochs
+				+ ", maxIterationsPerRecord=" + maxIterationsPerRecord
+				+ ", timeBudget=" + timeBudget + ", patience=" + patience
+				+ ", minImprovement=" + minImprovement + "]";
+	}
+}
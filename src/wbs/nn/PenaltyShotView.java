@@ -1,6 +1,7 @@
 package wbs.nn;
 
 import java.io.File;
+import java.io.IOException;
 
 import GoalKeeperCheatSheet.Asker;
 import GoalKeeperCheatSheet.GoalKeeperCheatSheetNeuronalNetwork;
@@ -55,8 +56,19 @@ public class PenaltyShotView extends Activity {
 	protected ArrayAdapter<CharSequence> mAdapter8;
 	
 	private GoalKeeperCheatSheetNeuronalNetwork NN;
+	private Starter starter;
 	private boolean trained = false;
 	
+	/**
+	 * The state kept across configuration changes, so a running teaching job
+	 * goes on with the same network and is shown by the recreated view.
+	 */
+	private static class RetainedState {
+		GoalKeeperCheatSheetNeuronalNetwork NN;
+		Starter starter;
+		boolean trained;
+	}
+	
 	public static final int DEFAULT_POSITION = 0;
 	public static final String PREFERENCES_FILE = "SpinnerPrefs";
 	public static final String PROPERTY_DELIMITER = "=";
@@ -64,6 +76,7 @@ public class PenaltyShotView extends Activity {
 	public static final String POSITION_MARKER = POSITION_KEY + PROPERTY_DELIMITER;
 	public static final String SELECTION_KEY = "Selection";
 	public static final String SELECTION_MARKER = SELECTION_KEY + PROPERTY_DELIMITER;
+	public static final String MODEL_FILE = "network.gknn";
 	
 	private Handler handlerEvent = new Handler() {
 		@Override
@@ -71,6 +84,7 @@ public class PenaltyShotView extends Activity {
 			switch (msg.what) {
 				case 0: {
 					ProgressBar pB = (ProgressBar) findViewById(R.id.progressBar1);
+					pB.setProgress(0);
 					pB.setVisibility(View.VISIBLE);
 					break;
 				}
@@ -85,6 +99,11 @@ public class PenaltyShotView extends Activity {
 					trained = true;
 					break;
 				}
+				case 3: {
+					ProgressBar pB = (ProgressBar) findViewById(R.id.progressBar1);
+					pB.setProgress(msg.arg1);
+					break;
+				}
 				case 9: {
 					String err = (String) msg.obj;
 					Toast.makeText(getApplicationContext(), err, Toast.LENGTH_LONG).show();
@@ -178,8 +197,35 @@ public class PenaltyShotView extends Activity {
 		OnItemSelectedListener spinnerListener8 = new myOnItemSelectedListener(this, this.mAdapter8);
 		spinner8.setOnItemSelectedListener(spinnerListener8);
 		
+		//take over the network and the job of the view before a configuration change
+		RetainedState retained = (RetainedState) getLastNonConfigurationInstance();
+		if (retained != null) {
+			this.NN = retained.NN;
+			this.starter = retained.starter;
+			if (retained.trained) {
+				setAskAndConfig();
+			}
+			if (this.starter != null) {
+				this.starter.attach(this);
+			}
+		}
+		
+		//load the network taught last time, if there is one
+		File modelFile = new File(getFilesDir(), MODEL_FILE);
+		if (this.NN == null && modelFile.exists()) {
+			try {
+				this.NN = GoalKeeperCheatSheetNeuronalNetwork.load(modelFile);
+				setAskAndConfig();
+			} catch (IOException e) {
+				e.printStackTrace();
+				modelFile.delete();
+			}
+		}
+		
 		//hiddenNodes, default_epsilon, default_learningRate
-		this.NN = new GoalKeeperCheatSheetNeuronalNetwork(16, 1.0, 0.0);
+		if (this.NN == null) {
+			this.NN = new GoalKeeperCheatSheetNeuronalNetwork(16, 1.0, 0.0);
+		}
 	}
 	
 	public class myOnItemSelectedListener implements OnItemSelectedListener {
@@ -288,6 +334,27 @@ public class PenaltyShotView extends Activity {
 		}
 	}
 
+	@Override
+	public Object onRetainNonConfigurationInstance() {
+		RetainedState retained = new RetainedState();
+		retained.NN = this.NN;
+		retained.starter = this.starter;
+		retained.trained = this.trained;
+		return retained;
+	}
+
+	@Override
+	public void onDestroy() {
+		super.onDestroy();
+		
+		//stop teaching when the activity is left for good, the network is not
+		//saved; on a configuration change like a rotation the network and the
+		//job are retained and taken over by the recreated view
+		if (this.starter != null && isFinishing()) {
+			this.starter.cancel();
+		}
+	}
+
 	@Override
 	public void onPause() {
 		super.onPause();
@@ -402,7 +469,10 @@ public class PenaltyShotView extends Activity {
 	}
 	
 	public void start(View v) {
-		if(this.isExternalStorageAvail()) {
+		if (this.NN.isJobRunning()) {
+			Toast.makeText(this, "Teaching is already running.", Toast.LENGTH_LONG).show();
+		}
+		else if(this.isExternalStorageAvail()) {
 			EditText filePath = (EditText) findViewById(R.id.filePath);
 			File f = new File(Environment.getExternalStorageDirectory() + "/" + filePath.getText().toString());
 			
@@ -413,7 +483,9 @@ public class PenaltyShotView extends Activity {
 				double l = Double.parseDouble(learningRate.getText().toString());
 				this.NN.setEpsilon(e);
 				this.NN.setLearningRate(l);
-				new Starter(this, this.NN, f);
+				this.starter = new Starter(this, this.NN, f, new File(getFilesDir(), MODEL_FILE));
+			} catch (IllegalStateException e) {
+				Toast.makeText(this, "Teaching is already running.", Toast.LENGTH_LONG).show();
 			} catch (Exception e) {
 				e.printStackTrace();
 				Toast.makeText(this, "Wrong Epsilon/LearningRate Input.", Toast.LENGTH_LONG).show();
@@ -432,6 +504,13 @@ public class PenaltyShotView extends Activity {
 		this.handlerEvent.sendEmptyMessage(i);
 	}
 	
+	public void setTeachingProgress(int percent) {
+		Message msg = new Message();
+		msg.what = 3;
+		msg.arg1 = percent;
+		this.handlerEvent.sendMessage(msg);
+	}
+	
 	public void setAskAndConfig() {
 		this.handlerEvent.sendEmptyMessage(2);
 	}